@@ -0,0 +1,71 @@
+package com.example.android.booklistingapp;
+
+/**
+ * Limits how many bytes background work may download, as a token bucket.
+ * <p>
+ * The budget starts full at its capacity and refills at a fixed rate. Work checks
+ * {@link #hasBudget(long)} before it starts and then spends what it downloads with
+ * {@link #consume(long, long)}. Spending may take the budget below zero, in which case
+ * no work starts until it has refilled. All the methods are thread safe.
+ */
+public class BandwidthBudget {
+
+    // Most bytes that can be spent in one burst
+    private final long mCapacity;
+
+    // Bytes added back every second
+    private final long mBytesPerSecond;
+
+    // Bytes left at the time of mUpdatedAt, may be negative
+    private long mAvailable;
+
+    // Time of the last refill, in milliseconds
+    private long mUpdatedAt;
+
+    /**
+     * Create a new, full budget.
+     *
+     * @param capacity       is the most bytes that can be spent in one burst
+     * @param bytesPerSecond is the rate the budget refills at
+     * @param now            is the current time, in milliseconds
+     */
+    public BandwidthBudget(long capacity, long bytesPerSecond, long now) {
+        mCapacity = capacity;
+        mBytesPerSecond = bytesPerSecond;
+        mAvailable = capacity;
+        mUpdatedAt = now;
+    }
+
+    /**
+     * Returns true if there are bytes left to spend.
+     */
+    public synchronized boolean hasBudget(long now) {
+        refill(now);
+        return mAvailable > 0;
+    }
+
+    /**
+     * Spend the given number of bytes.
+     */
+    public synchronized void consume(long bytes, long now) {
+        refill(now);
+        mAvailable -= bytes;
+    }
+
+    /**
+     * Returns the number of bytes left to spend, negative when overspent.
+     */
+    public synchronized long available(long now) {
+        refill(now);
+        return mAvailable;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - mUpdatedAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        mAvailable = Math.min(mCapacity, mAvailable + elapsed * mBytesPerSecond / 1000);
+        mUpdatedAt = now;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.android.booklistingapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.LruCache;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two tier cache for the book cover thumbnails, keyed by the thumbnail URL.
+ * <p>
+ * The first tier keeps decoded {@link Bitmap}s in memory and is sized in bytes.
+ * The second tier keeps the downloaded image files on disk, so a cover that fell out of
+ * memory does not have to be downloaded again.
+ * <p>
+ * Bitmaps evicted from memory are decoded into again, but only once no ImageView shows
+ * them: the views say which bitmaps they show with {@link #attach(Bitmap)} and
+ * {@link #detach(Bitmap)}.
+ */
+public class BitmapCache {
+
+    // Part of the heap the memory cache may use
+    private static final int MEMORY_CACHE_DIVIDER = 8;
+
+    // Size of the disk cache, in bytes
+    private static final long DISK_CACHE_SIZE = 10 * 1024 * 1024;
+
+    // Name of the directory inside the app cache directory
+    private static final String DISK_CACHE_DIRECTORY = "covers";
+
+    private static BitmapCache sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final DiskCache mDiskCache;
+
+    // URLs of the bitmaps in memory, looked up without counting a hit or a miss
+    private final Set<String> mMemoryKeys =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // Bitmaps evicted from memory whose pixels can be reused by the next decode.
+    // Also the lock of the two fields below.
+    private final Set<SoftReference<Bitmap>> mReusableBitmaps = new HashSet<>();
+
+    // Number of ImageViews that show each bitmap, by identity
+    private final Map<Bitmap, Integer> mAttachCounts = new IdentityHashMap<>();
+
+    // Bitmaps evicted while a view still showed them, reusable once the last view lets go
+    private final Set<Bitmap> mEvictedAttached =
+            Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    /**
+     * Return the cache shared by the whole app.
+     */
+    public static synchronized BitmapCache getInstance(Context context) {
+        if (sInstance == null) {
+            int memoryCacheSize = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_DIVIDER);
+            File directory = new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIRECTORY);
+            sInstance = new BitmapCache(memoryCacheSize, new DiskCache(directory, DISK_CACHE_SIZE));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param memoryCacheSize is the maximum size of the bitmaps kept in memory, in bytes
+     * @param diskCache       is the cache for the downloaded image files
+     */
+    public BitmapCache(int memoryCacheSize, DiskCache diskCache) {
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (newValue == null) {
+                    mMemoryKeys.remove(key);
+                }
+                // A cover can be evicted while a row still shows it, e.g. in a fast fling:
+                // its pixels are only reused once no view shows it anymore
+                if (evicted && oldValue.isMutable()
+                        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                    synchronized (mReusableBitmaps) {
+                        if (mAttachCounts.containsKey(oldValue)) {
+                            mEvictedAttached.add(oldValue);
+                        } else {
+                            mReusableBitmaps.add(new SoftReference<>(oldValue));
+                        }
+                    }
+                }
+            }
+        };
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * Return the decoded cover from memory, or null. Cheap enough for the UI thread.
+     */
+    public Bitmap getBitmap(String url) {
+        return mMemoryCache.get(url);
+    }
+
+    /**
+     * Return the decoded cover from memory, or null, attached like with {@link #attach(Bitmap)}.
+     * The bitmap cannot be evicted and reused between the lookup and the attach.
+     */
+    public Bitmap getAndAttach(String url) {
+        synchronized (mReusableBitmaps) {
+            // An eviction takes the lock after the bitmap left the memory cache, so it either
+            // happened before the lookup or sees the bitmap attached
+            Bitmap bitmap = mMemoryCache.get(url);
+            if (bitmap != null) {
+                attach(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Return true if the cover is in memory, without counting a hit or a miss and without
+     * making it the most recently used. Only a hint, the cover may be evicted right after.
+     */
+    public boolean contains(String url) {
+        return mMemoryKeys.contains(url);
+    }
+
+    public void putBitmap(String url, Bitmap bitmap) {
+        mMemoryKeys.add(url);
+        mMemoryCache.put(url, bitmap);
+    }
+
+    /**
+     * Return the downloaded image file from disk, or null. Must not run on the UI thread.
+     */
+    public byte[] getImageData(String url) {
+        return mDiskCache.get(url);
+    }
+
+    public void putImageData(String url, byte[] data) {
+        mDiskCache.put(url, data);
+    }
+
+    /**
+     * An ImageView started to show the bitmap, its pixels must not be reused until
+     * the view lets go of it.
+     */
+    public void attach(Bitmap bitmap) {
+        synchronized (mReusableBitmaps) {
+            Integer count = mAttachCounts.get(bitmap);
+            mAttachCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * An ImageView stopped showing the bitmap it was attached to.
+     */
+    public void detach(Bitmap bitmap) {
+        synchronized (mReusableBitmaps) {
+            Integer count = mAttachCounts.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mAttachCounts.put(bitmap, count - 1);
+                return;
+            }
+            mAttachCounts.remove(bitmap);
+            if (mEvictedAttached.remove(bitmap)) {
+                mReusableBitmaps.add(new SoftReference<>(bitmap));
+            }
+        }
+    }
+
+    /**
+     * Return an evicted bitmap that can be decoded into with the given options, or null.
+     * The bitmap is removed from the reusable set.
+     */
+    public Bitmap takeReusableBitmap(BitmapFactory.Options options) {
+        synchronized (mReusableBitmaps) {
+            Iterator<SoftReference<Bitmap>> iterator = mReusableBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next().get();
+                if (candidate == null || !candidate.isMutable() || candidate.isRecycled()) {
+                    iterator.remove();
+                } else if (BitmapDecoder.canUseForInBitmap(candidate, options)) {
+                    iterator.remove();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    public int memoryHitCount() {
+        return mMemoryCache.hitCount();
+    }
+
+    public int memoryMissCount() {
+        return mMemoryCache.missCount();
+    }
+
+    public int memoryEvictionCount() {
+        return mMemoryCache.evictionCount();
+    }
+
+    public int diskHitCount() {
+        return mDiskCache.hitCount();
+    }
+
+    public int diskMissCount() {
+        return mDiskCache.missCount();
+    }
+
+    public int diskEvictionCount() {
+        return mDiskCache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapCache{memory " + mMemoryCache.size() + "/" + mMemoryCache.maxSize()
+                + " bytes, hits=" + memoryHitCount() + ", misses=" + memoryMissCount()
+                + ", evictions=" + memoryEvictionCount()
+                + "; disk " + mDiskCache.size() + "/" + mDiskCache.maxSize()
+                + " bytes, hits=" + diskHitCount() + ", misses=" + diskMissCount()
+                + ", evictions=" + diskEvictionCount() + "}";
+    }
+}
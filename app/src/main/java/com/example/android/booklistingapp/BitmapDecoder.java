@@ -0,0 +1,113 @@
+package com.example.android.booklistingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+/**
+ * Decodes the downloaded cover files at the size they are shown at.
+ * <p>
+ * The bounds of the image are read first, so a cover that is bigger than the ImageView is
+ * sub-sampled while it is decoded instead of being decoded at full size. Covers are JPEGs
+ * without transparency, so RGB_565 is used, which needs half the memory of ARGB_8888.
+ * Where the platform allows it, the pixels of a bitmap evicted from the {@link BitmapCache}
+ * are reused instead of allocating new ones.
+ */
+public class BitmapDecoder {
+
+    // Size of the area the cover is shown in, in pixels
+    private final int mReqWidth;
+    private final int mReqHeight;
+
+    /**
+     * Create a new decoder for covers shown in an area of the given size.
+     *
+     * @param reqWidth  is the width of the ImageView content, in pixels
+     * @param reqHeight is the height of the ImageView content, in pixels
+     */
+    public BitmapDecoder(int reqWidth, int reqHeight) {
+        mReqWidth = reqWidth;
+        mReqHeight = reqHeight;
+    }
+
+    /**
+     * Decode the image file, or return null if it is not an image.
+     *
+     * @param data        is the image file
+     * @param bitmapCache is asked for an evicted bitmap whose memory can be reused
+     */
+    public Bitmap decode(byte[] data, BitmapCache bitmapCache) {
+        // First decode with inJustDecodeBounds=true to check the dimensions
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                mReqWidth, mReqHeight);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inJustDecodeBounds = false;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            // inBitmap only works with mutable bitmaps
+            options.inMutable = true;
+            options.inBitmap = bitmapCache.takeReusableBitmap(options);
+        }
+
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The reused bitmap did not fit after all, decode into a new one
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    /**
+     * Return the largest power of two sample size that keeps both sides of the image
+     * at least as big as the requested size.
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Return true if the pixels of the candidate bitmap can be used to decode an image
+     * with the given (already filled in) options.
+     */
+    static boolean canUseForInBitmap(Bitmap candidate, BitmapFactory.Options options) {
+        if (!candidate.isMutable() || candidate.isRecycled()) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // From Android 4.4 the new bitmap only has to fit into the old allocation
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            int byteCount = width * height * bytesPerPixel(options.inPreferredConfig);
+            return byteCount <= candidate.getAllocationByteCount();
+        }
+        // Before that the size must be exactly the same and no sub-sampling is allowed
+        return candidate.getWidth() == options.outWidth
+                && candidate.getHeight() == options.outHeight
+                && options.inSampleSize == 1
+                && candidate.getConfig() == options.inPreferredConfig;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return 4;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 2;
+    }
+}
@@ -1,69 +1,150 @@
 package com.example.android.booklistingapp;
 
+import java.util.Arrays;
 
-public class Book {
+public final class Book {
+
+    // Shared by all the books that have no authors or no categories
+    private static final String[] NONE = new String[0];
+
+    // Most chars of the description shown in a collapsed row of the list
+    static final int SHORT_DESCRIPTION_LENGTH = 200;
+
+    // Offset basis and prime of the 64 bit FNV-1a hash used for the stable ids
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Google Books volume id, null when the response did not have it
+    private final String mId;
 
     // Book title
-    private String mBookTitle;
+    private final String mBookTitle;
 
     // Book publisher
-    private String mPublisher;
+    private final String mPublisher;
 
-    // Book author
-    private StringBuilder mBookAuthor;
+    // Book authors
+    private final String[] mAuthors;
 
     // URL of the book;
-    private String mUrl;
+    private final String mUrl;
 
     // Book published date
-    private String mPublishedDate;
+    private final String mPublishedDate;
 
     /**
      * Book Categories
      */
-    private StringBuilder mCategories;
+    private final String[] mCategories;
 
     /**
      * Description
      */
-    private String mDescription;
+    private final String mDescription;
 
     /**
      * Thumbnail Link
      */
-    private String mThumbnailLink;
+    private final String mThumbnailLink;
+
+    /**
+     * Display text of the authors, the categories and the short description, formatted the
+     * first time it is asked for.
+     * Racy but harmless: two threads may both format it, and they give the same text.
+     */
+    private String mAuthorText;
+    private String mCategoryText;
+    private String mShortDescription;
 
     /**
      * Create a new constructor for Book object.
+     * Publishers, authors and categories repeat across results, so they are shared
+     * through the {@link StringPool}.
      *
+     * @param id            is the Google Books volume id of the book, or null
      * @param title         is the title of the book
-     * @param author        is the names of the authors of the book
+     * @param authors       is the names of the authors of the book
      * @param publisher     is the publisher of the book
      * @param url           is the url of the book
      * @param publishedDate is the published date of the book
-     * @param categories    is the category of the book
+     * @param categories    is the categories of the book
      * @param description   is the description of the book
      * @param thumbnailLink is the image link of the book
      */
 
-    public Book(String title, StringBuilder author, String publisher, String url, String publishedDate, StringBuilder categories, String description, String thumbnailLink) {
+    public Book(String id, String title, String[] authors, String publisher, String url, String publishedDate, String[] categories, String description, String thumbnailLink) {
+        mId = id;
         mBookTitle = title;
-        mBookAuthor = author;
-        mPublisher = publisher;
+        mAuthors = authors.length == 0 ? NONE : StringPool.intern(authors);
+        mPublisher = StringPool.intern(publisher);
         mUrl = url;
         mPublishedDate = publishedDate;
-        mCategories = categories;
+        mCategories = categories.length == 0 ? NONE : StringPool.intern(categories);
         mDescription = description;
         mThumbnailLink = thumbnailLink;
     }
 
     //Getter methods
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * Returns the value that tells this book apart from the other results: the volume id,
+     * or the URL of the book when there is no id.
+     */
+    public String getKey() {
+        if (mId != null) {
+            return mId;
+        }
+        return mUrl != null ? mUrl : mBookTitle;
+    }
+
+    /**
+     * Returns a number that identifies the book in a list, computed from {@link #getKey()}.
+     * The same book always gets the same number, also when it comes from another page or
+     * another search.
+     */
+    public long getStableId() {
+        String key = getKey();
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns true if the other book shows the same text and cover in a row of the list.
+     */
+    public boolean hasSameContents(Book other) {
+        return equal(mBookTitle, other.mBookTitle)
+                && Arrays.equals(mAuthors, other.mAuthors)
+                && equal(mPublisher, other.mPublisher)
+                && equal(mUrl, other.mUrl)
+                && equal(mPublishedDate, other.mPublishedDate)
+                && Arrays.equals(mCategories, other.mCategories)
+                && equal(mDescription, other.mDescription)
+                && equal(mThumbnailLink, other.mThumbnailLink);
+    }
+
     public String getTitle() {
         return mBookTitle;
     }
 
-    public StringBuilder getBookAuthor() {
-        return mBookAuthor;
+    /**
+     * Returns the authors, every one on its own line, or "No Author".
+     */
+    public String getBookAuthor() {
+        if (mAuthorText == null) {
+            mAuthorText = mAuthors.length == 0 ? "No Author" : joinLines(mAuthors);
+        }
+        return mAuthorText;
+    }
+
+    public String[] getAuthors() {
+        return mAuthors.clone();
     }
 
     public String getPublisher() {
@@ -78,15 +159,82 @@ public class Book {
         return mPublishedDate;
     }
 
-    public StringBuilder getCategories() {
-        return mCategories;
+    /**
+     * Returns the categories, every one on its own line, or "No categories".
+     */
+    public String getCategories() {
+        if (mCategoryText == null) {
+            mCategoryText = mCategories.length == 0 ? "No categories" : joinLines(mCategories);
+        }
+        return mCategoryText;
+    }
+
+    public String[] getCategoryList() {
+        return mCategories.clone();
     }
 
     public String getDescription() {
         return mDescription;
     }
 
+    /**
+     * Returns true if the description is longer than the part shown in a collapsed row.
+     */
+    public boolean hasLongDescription() {
+        return mDescription != null && mDescription.length() > SHORT_DESCRIPTION_LENGTH;
+    }
+
+    /**
+     * Returns the start of the description for a collapsed row of the list, cut after a
+     * whole word and ended with an ellipsis. A short description is returned as it is.
+     */
+    public String getShortDescription() {
+        if (mShortDescription == null && mDescription != null) {
+            mShortDescription = hasLongDescription() ? shorten(mDescription) : mDescription;
+        }
+        return mShortDescription;
+    }
+
+    /**
+     * Format the text the list shows for the book now, e.g. on the background thread that
+     * loaded it, so binding its row only has to set the text.
+     */
+    public void prepareDisplayText() {
+        getBookAuthor();
+        getCategories();
+        getShortDescription();
+    }
+
     public String getmThumbnailLink() {
         return mThumbnailLink;
     }
-}
\ No newline at end of file
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String shorten(String text) {
+        int end = SHORT_DESCRIPTION_LENGTH;
+        // Cut between words when there is one near the end, and never inside a surrogate pair
+        int space = text.lastIndexOf(' ', end);
+        if (space > end / 2) {
+            end = space;
+        } else if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end).trim() + "\u2026";
+    }
+
+    /**
+     * Put every value on its own line, each one starting with a line separator.
+     */
+    private static String joinLines(String[] values) {
+        String separator = System.getProperty("line.separator");
+        StringBuilder text = new StringBuilder();
+        for (String value : values) {
+            text.append(separator);
+            text.append(value);
+        }
+        return text.toString();
+    }
+}
@@ -1,156 +1,226 @@
 package com.example.android.booklistingapp;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.AsyncTask;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * {@link RecyclerView.Adapter} that shows a list of {@link Book}s.
+ * <p>
+ * The views of a row are looked up once, when its {@link BookViewHolder} is created. Rows have
+ * stable ids, and a new list is compared with the old one with {@link DiffUtil}, so adding a
+ * page or repeating a search only rebinds the rows that really changed.
+ * <p>
+ * A row shows the short description of its book, so binding it costs the same however long
+ * the description is. Tapping the description expands the row to the whole description,
+ * and tapping it again collapses it.
+ */
+public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder> {
 
+    /**
+     * Called when the user clicks a book of the list.
+     */
+    public interface OnBookClickListener {
+        void onBookClick(Book book);
+    }
+
+    // Books shown in the list, never changed in place
+    private List<Book> mBooks = Collections.emptyList();
 
-public class BookAdapter extends ArrayAdapter<Book> {
+    // Loads the cover thumbnails into the recycled ImageViews
+    private final CoverLoader mCoverLoader;
 
+    // Records the bind time of the rows
+    private final Metrics mMetrics = Metrics.getInstance();
+
+    private final OnBookClickListener mListener;
+
+    // Keys of the books whose whole description is shown
+    private final Set<String> mExpandedKeys = new HashSet<>();
 
     /**
      * This is our own custom constructor (it doesn't mirror a superclass constructor).
-     * The context is used to inflate the layout file, and the list is the data we want
-     * to populate into the lists.
+     * The context is used to inflate the layout file.
      *
-     * @param context The current context. Used to inflate the layout file.
-     * @param books   A List of Book objects to display in a list
+     * @param context  The current context. Used to inflate the layout file.
+     * @param listener is called when a book is clicked
      */
-
-    public BookAdapter(Context context, ArrayList<Book> books) {
-        // Here, we initialize the ArrayAdapter's internal storage for the context and the list.
-        // the second argument is used when the ArrayAdapter is populating a single TextView.
-        // Because this is a custom adapter for two TextViews and an ImageView, the adapter is not
-        // going to use this second argument, so it can be any value. Here, we used 0.
-        super(context, 0, books);
-
+    public BookAdapter(Context context, OnBookClickListener listener) {
+        mListener = listener;
+        // The covers are decoded at the size of the cover ImageView without its padding
+        int coverSize = context.getResources().getDimensionPixelSize(R.dimen.book_picture)
+                - 2 * context.getResources().getDimensionPixelSize(R.dimen.padding_normal);
+        mCoverLoader = new CoverLoader(BitmapCache.getInstance(context), coverSize);
+        // The same book keeps its row when pages are added or dropped around it
+        setHasStableIds(true);
     }
 
     /**
-     * Provides a view for an AdapterView (ListView, GridView, etc.)
-     *
-     * @param position    The position in the list of data that should be displayed in the
-     *                    list item view.
-     * @param convertView The recycled view to populate.
-     * @param parent      The parent ViewGroup that is used for inflation.
-     * @return The View for the position in the AdapterView.
+     * Returns the loader of the covers of the list, e.g. to prefetch covers into its cache.
      */
+    public CoverLoader getCoverLoader() {
+        return mCoverLoader;
+    }
 
+    /**
+     * Returns the books shown in the list. The list must not be changed.
+     */
+    public List<Book> getBooks() {
+        return mBooks;
+    }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        // Check if the existing view is being reused, otherwise inflate the view
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
-        }
-
-
-        // Get the {@link Book} object located at this position in the list
-        Book currentBook = getItem(position);
-
-        // Find the TextView in the list_item.xml layout with the ID version_name
-        TextView titleTextView = (TextView) listItemView.findViewById(R.id.book_title);
-        // Get the version name from the current Book object and
-        // set this text on the name TextView
-        titleTextView.setText(currentBook.getTitle());
-
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView publisherTextView = (TextView) listItemView.findViewById(R.id.publisher);
-        // Get the version number from the current Book object and
-        // set this text on the number TextView
-        publisherTextView.setText(currentBook.getPublisher());
-
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView publishedDateTextView = (TextView) listItemView.findViewById(R.id.published_date);
-        // Get the version number from the current Book object and
-        // set this text on the number TextView
-        publishedDateTextView.setText(currentBook.getPublishedDate());
-
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView categoriesTextView = (TextView) listItemView.findViewById(R.id.categories);
-        // Get the version number from the current Book object and
-        // set this text on the number TextView
-        categoriesTextView.setText(currentBook.getCategories());
-
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView descriptionTextView = (TextView) listItemView.findViewById(R.id.description);
-        // Get the version number from the current Book object and
-        // set this text on the number TextView
-        descriptionTextView.setText(currentBook.getDescription());
-
+    public Book getItem(int position) {
+        return mBooks.get(position);
+    }
 
-        // Find the TextView in the list_item.xml layout with the ID version_number
-        TextView authorTextView = (TextView) listItemView.findViewById(R.id.author);
-        // Get the version number from the current Book object and
-        // set this text on the number TextView
-        authorTextView.setText(currentBook.getBookAuthor());
+    /**
+     * Show a new list of books. Only the rows that were added, removed or changed compared
+     * with the current list are updated.
+     */
+    public void setBooks(List<Book> books) {
+        final List<Book> oldBooks = mBooks;
+        final List<Book> newBooks = new ArrayList<>(books);
+        // At most a few pages are in the list, so the difference is quick to compute
+        // on the UI thread. Books never change their place relative to each other.
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldBooks.size();
+            }
 
+            @Override
+            public int getNewListSize() {
+                return newBooks.size();
+            }
 
-        // Find the ImageView dedicated to the bookcover link
-        ImageView coverImageView = (ImageView) listItemView.findViewById(R.id.cover_ImageView);
-        String thumbnailLink = currentBook.getmThumbnailLink();
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldBooks.get(oldPosition).getKey().equals(newBooks.get(newPosition).getKey());
+            }
 
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldBooks.get(oldPosition).hasSameContents(newBooks.get(newPosition));
+            }
+        }, false);
+        mBooks = newBooks;
+        if (!mExpandedKeys.isEmpty()) {
+            Set<String> keys = new HashSet<>();
+            for (Book book : newBooks) {
+                keys.add(book.getKey());
+            }
+            mExpandedKeys.retainAll(keys);
+        }
+        diff.dispatchUpdatesTo(this);
+    }
 
-        AsyncTask<ImageView, Void, Bitmap> imageViewVoidBitmapAsyncTask = new DownloadImagesTask(thumbnailLink)
-                .execute(coverImageView);
+    @Override
+    public int getItemCount() {
+        return mBooks.size();
+    }
 
-        // Return the whole list item layout (containing 6 TextViews and an ImageView)
-        // so that it can be shown in the ListView
-        return listItemView;
+    @Override
+    public long getItemId(int position) {
+        return mBooks.get(position).getStableId();
     }
 
-    public class DownloadImagesTask extends AsyncTask<ImageView, Void, Bitmap> {
-        private ImageView imageView;
-        private String url;
+    @Override
+    public BookViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View listItemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.list_item, parent, false);
+        return new BookViewHolder(listItemView);
+    }
 
-        public DownloadImagesTask(String url) {
-            this.url = url;
+    /**
+     * Show the book at the given position in the row of the view holder.
+     */
+    @Override
+    public void onBindViewHolder(BookViewHolder holder, int position) {
+        long start = mMetrics.beginSection("adapter.bind");
+        try {
+            // Get the {@link Book} object located at this position in the list
+            Book currentBook = mBooks.get(position);
+
+            holder.mTitleTextView.setText(currentBook.getTitle());
+            holder.mPublisherTextView.setText(currentBook.getPublisher());
+            holder.mPublishedDateTextView.setText(currentBook.getPublishedDate());
+            holder.mCategoriesTextView.setText(currentBook.getCategories());
+            // The whole description only when the user asked for it, the short one was
+            // prepared when the page was loaded
+            holder.mDescriptionTextView.setText(mExpandedKeys.contains(currentBook.getKey())
+                    ? currentBook.getDescription() : currentBook.getShortDescription());
+            holder.mAuthorTextView.setText(currentBook.getBookAuthor());
+
+            // Shows the cover from the cache, or starts (or joins) its download. A download
+            // for the book this recycled view showed before is cancelled.
+            mCoverLoader.load(currentBook.getmThumbnailLink(), holder.mCoverImageView);
+        } finally {
+            mMetrics.endSection("adapter.bind", start);
         }
+    }
 
+    /**
+     * A row went off the screen, its cover is not needed anymore.
+     */
+    @Override
+    public void onViewRecycled(BookViewHolder holder) {
+        mCoverLoader.cancel(holder.mCoverImageView);
+    }
 
-        @Override
-        protected Bitmap doInBackground(ImageView... imageViews) {
-            this.imageView = imageViews[0];
-            return download_Image(url);
-        }
-
-        @Override
-        protected void onProgressUpdate(Void... values) {
-            super.onProgressUpdate(values);
+    /**
+     * Holds the views of a row, so they are looked up only once.
+     */
+    class BookViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final TextView mTitleTextView;
+        final TextView mPublisherTextView;
+        final TextView mPublishedDateTextView;
+        final TextView mCategoriesTextView;
+        final TextView mDescriptionTextView;
+        final TextView mAuthorTextView;
+        final ImageView mCoverImageView;
+
+        BookViewHolder(View itemView) {
+            super(itemView);
+            mTitleTextView = (TextView) itemView.findViewById(R.id.book_title);
+            mPublisherTextView = (TextView) itemView.findViewById(R.id.publisher);
+            mPublishedDateTextView = (TextView) itemView.findViewById(R.id.published_date);
+            mCategoriesTextView = (TextView) itemView.findViewById(R.id.categories);
+            mDescriptionTextView = (TextView) itemView.findViewById(R.id.description);
+            mAuthorTextView = (TextView) itemView.findViewById(R.id.author);
+            mCoverImageView = (ImageView) itemView.findViewById(R.id.cover_ImageView);
+            itemView.setOnClickListener(this);
+            mDescriptionTextView.setOnClickListener(this);
         }
 
         @Override
-        protected void onPostExecute(Bitmap result) {
-            imageView.setImageBitmap(result);
-        }
-
-        private Bitmap download_Image(String urlParam) {
-
-            Bitmap bmp = null;
-            try {
-                URL url = new URL(urlParam);
-                HttpURLConnection con = (HttpURLConnection) url.openConnection();
-                InputStream is = con.getInputStream();
-                bmp = BitmapFactory.decodeStream(is);
-                if (null != bmp)
-                    return bmp;
-            } catch (Exception e) {
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            // The row may be on its way out of the list
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            Book book = mBooks.get(position);
+            if (view == mDescriptionTextView && book.hasLongDescription()) {
+                String key = book.getKey();
+                if (!mExpandedKeys.remove(key)) {
+                    mExpandedKeys.add(key);
+                }
+                notifyItemChanged(position);
+            } else if (mListener != null) {
+                mListener.onBookClick(book);
             }
-            return bmp;
         }
     }
-}
\ No newline at end of file
+}
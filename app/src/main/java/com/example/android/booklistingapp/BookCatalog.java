@@ -0,0 +1,377 @@
+package com.example.android.booklistingapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A catalog of books in a compact binary file, to seed a device or a test with many books
+ * without the network and without parsing JSON again.
+ * <p>
+ * The file is memory-mapped when it is opened, which only reads the header and the
+ * dictionary; a book is decoded from the mapped file when it is asked for. The layout,
+ * all numbers big-endian:
+ * <pre>
+ * header      magic "BKCT", format version, book count, dictionary size (4 byte ints)
+ * dictionary  the publishers, authors and categories, every distinct one once
+ * offsets     position of every book record in the file (4 byte ints)
+ * records     id, title, url, published date, description and thumbnail link as strings,
+ *             the publisher as a dictionary index, the authors and the categories as a
+ *             count followed by dictionary indexes
+ * </pre>
+ * Strings are their length in UTF-8 bytes plus one followed by the bytes, with 0 for null.
+ * Lengths, counts and indexes are unsigned variable length ints of 7 bits per byte, so
+ * most of them take one byte. Dictionary indexes are stored plus one too, 0 for null.
+ * <p>
+ * An open catalog is read only and thread safe.
+ */
+public final class BookCatalog {
+
+    // Name of the catalog a device is seeded with, in the files directory of the app
+    public static final String SEED_FILE_NAME = "catalog.bkc";
+
+    // First four bytes of every catalog, "BKCT"
+    static final int MAGIC = 0x424b4354;
+
+    // Version of the file format, files of other versions are not read
+    static final int FORMAT_VERSION = 1;
+
+    // Size of the header, in bytes
+    private static final int HEADER_SIZE = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // The whole file, never read through its own position, see record()
+    private final ByteBuffer mBuffer;
+
+    // Publishers, authors and categories, by index
+    private final String[] mDictionary;
+
+    private final int mSize;
+
+    // Position of the offset table in the file
+    private final int mOffsetsStart;
+
+    private BookCatalog(ByteBuffer buffer, String[] dictionary, int size, int offsetsStart) {
+        mBuffer = buffer;
+        mDictionary = dictionary;
+        mSize = size;
+        mOffsetsStart = offsetsStart;
+    }
+
+    /**
+     * Map the catalog file and read its header and dictionary.
+     *
+     * @throws IOException if the file cannot be read, or is not a catalog of this version
+     */
+    public static BookCatalog open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        MappedByteBuffer buffer;
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // The mapping stays valid after the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            randomAccessFile.close();
+        }
+        return read(buffer);
+    }
+
+    /**
+     * Read the header and the dictionary of a catalog that is already in memory.
+     *
+     * @throws IOException if the data is not a catalog of this version
+     */
+    static BookCatalog read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a book catalog");
+            }
+            int version = buffer.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown catalog version " + version);
+            }
+            int size = buffer.getInt(8);
+            int dictionarySize = buffer.getInt(12);
+            if (size < 0 || dictionarySize < 0) {
+                throw new IOException("Corrupt catalog header");
+            }
+
+            ByteBuffer in = buffer.duplicate();
+            in.position(HEADER_SIZE);
+            String[] dictionary = new String[dictionarySize];
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary[i] = StringPool.intern(readString(in));
+            }
+            int offsetsStart = in.position();
+            if ((long) offsetsStart + 4L * size > buffer.limit()) {
+                throw new IOException("Truncated catalog");
+            }
+            return new BookCatalog(buffer, dictionary, size, offsetsStart);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated catalog", e);
+        }
+    }
+
+    /**
+     * Returns the number of books in the catalog.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Decode the book at the given index.
+     *
+     * @throws IllegalStateException if the record of the book is corrupt
+     */
+    public Book get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Book " + index + " of " + mSize);
+        }
+        try {
+            return record(mBuffer.getInt(mOffsetsStart + 4 * index));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Corrupt record of book " + index, e);
+        }
+    }
+
+    /**
+     * Decode every book of the catalog, in the order they were written.
+     */
+    public List<Book> getAll() {
+        List<Book> books = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            books.add(get(i));
+        }
+        return books;
+    }
+
+    /**
+     * Returns a read only view of the books, which decodes a book every time it is asked
+     * for. Going through the view, e.g. to index a large catalog, never holds all the books
+     * at once.
+     */
+    public List<Book> asList() {
+        return new CatalogList();
+    }
+
+    private Book record(int offset) throws IOException {
+        // A view of its own, so several threads can decode at the same time
+        ByteBuffer in = mBuffer.duplicate();
+        in.position(offset);
+        String id = readString(in);
+        String title = readString(in);
+        String url = readString(in);
+        String publishedDate = readString(in);
+        String description = readString(in);
+        String thumbnailLink = readString(in);
+        String publisher = word(readVarInt(in));
+        String[] authors = words(in);
+        String[] categories = words(in);
+        return new Book(id, title, authors, publisher, url, publishedDate, categories,
+                description, thumbnailLink);
+    }
+
+    private String[] words(ByteBuffer in) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Malformed count " + count);
+        }
+        String[] words = new String[count];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = word(readVarInt(in));
+        }
+        return words;
+    }
+
+    /**
+     * Return the dictionary entry of an index stored plus one, or null for 0.
+     */
+    private String word(int reference) throws IOException {
+        if (reference == 0) {
+            return null;
+        }
+        if (reference > mDictionary.length) {
+            throw new IOException("Dictionary index " + reference + " of " + mDictionary.length);
+        }
+        return mDictionary[reference - 1];
+    }
+
+    /**
+     * Write the books to the file as a catalog. The file is replaced as a whole, so a
+     * catalog that is open or being copied is never seen half written.
+     */
+    public static void write(Collection<Book> books, File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            write(books, out);
+            out.close();
+            out = null;
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace " + file);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Could not rename " + tmp);
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Write the books to the stream as a catalog. The stream is not closed.
+     */
+    public static void write(Collection<Book> books, OutputStream out) throws IOException {
+        // Every distinct publisher, author and category, in the order they first appear
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> words = new ArrayList<>();
+
+        // The records, written first to know their offsets
+        ByteArrayOutputStream records = new ByteArrayOutputStream(books.size() * 256);
+        int[] offsets = new int[books.size()];
+        int index = 0;
+        for (Book book : books) {
+            offsets[index++] = records.size();
+            writeString(records, book.getId());
+            writeString(records, book.getTitle());
+            writeString(records, book.getUrl());
+            writeString(records, book.getPublishedDate());
+            writeString(records, book.getDescription());
+            writeString(records, book.getmThumbnailLink());
+            writeVarInt(records, reference(book.getPublisher(), dictionary, words));
+            writeWords(records, book.getAuthors(), dictionary, words);
+            writeWords(records, book.getCategoryList(), dictionary, words);
+        }
+
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        for (String word : words) {
+            writeString(dictionaryBytes, word);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(offsets.length);
+        data.writeInt(words.size());
+        dictionaryBytes.writeTo(data);
+        int recordsStart = HEADER_SIZE + dictionaryBytes.size() + 4 * offsets.length;
+        for (int offset : offsets) {
+            data.writeInt(recordsStart + offset);
+        }
+        records.writeTo(data);
+        data.flush();
+    }
+
+    private static void writeWords(ByteArrayOutputStream out, String[] values,
+                                   Map<String, Integer> dictionary, List<String> words) {
+        writeVarInt(out, values.length);
+        for (String value : values) {
+            writeVarInt(out, reference(value, dictionary, words));
+        }
+    }
+
+    /**
+     * Return the dictionary index of the value plus one, adding it if it is new, or 0 for null.
+     */
+    private static int reference(String value, Map<String, Integer> dictionary, List<String> words) {
+        if (value == null) {
+            return 0;
+        }
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = words.size();
+            dictionary.put(value, index);
+            words.add(value);
+        }
+        return index + 1;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("String of " + length + " bytes past the end");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed length");
+    }
+
+    @Override
+    public String toString() {
+        return "BookCatalog{books=" + mSize + " words=" + mDictionary.length + "}";
+    }
+
+    /**
+     * The books of the catalog as a list, decoded on every get().
+     */
+    private class CatalogList extends AbstractList<Book> implements RandomAccess {
+        @Override
+        public Book get(int index) {
+            return BookCatalog.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+}
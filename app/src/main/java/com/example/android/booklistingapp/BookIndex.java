@@ -0,0 +1,410 @@
+package com.example.android.booklistingapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory full-text index over every {@link Book} the app has parsed, so a search can be
+ * answered on the device, right away and without a network connection.
+ * <p>
+ * The title, authors, publisher, categories and description of a book are split into lower
+ * case words. Every word points to the books that contain it, in a sorted map, so all the words
+ * that start with a prefix are found with one range lookup. A query matches the books that
+ * contain every one of its words, each taken as a prefix. Matches in the title count the most,
+ * matches in the description the least.
+ * <p>
+ * Books are added as they are parsed. A book that is added again replaces the old one, found
+ * by {@link Book#getKey()}. The index keeps at most {@link #MAX_BOOKS} books, the books added
+ * first are dropped to make room. All the methods are thread safe; a search waits at most
+ * for the books of one chunk of {@link #addAll(Collection)} to be added.
+ */
+public class BookIndex {
+
+    // Weight of a word by the field it was found in
+    private static final int TITLE_WEIGHT = 8;
+    private static final int AUTHOR_WEIGHT = 4;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int PUBLISHER_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Shorter words are not indexed, they would match almost every book
+    private static final int MIN_WORD_LENGTH = 2;
+
+    // Most books kept, so the index stays the same size however many books the app sees
+    static final int MAX_BOOKS = 20000;
+
+    // Books added in one go by addAll(), before a waiting search gets its turn
+    private static final int ADD_CHUNK = 200;
+
+    private static final BookIndex sInstance = new BookIndex();
+
+    // Book of each document number, null when the book was replaced by a newer one
+    private final List<Book> mBooks = new ArrayList<>();
+
+    // Document number of every indexed book, by the key of the book
+    private final Map<String, Integer> mDocuments = new HashMap<>();
+
+    // Word -> the documents that contain it
+    private final TreeMap<String, Postings> mWords = new TreeMap<>();
+
+    // Maximum number of live books, the oldest are dropped past it
+    private final int mMaxBooks;
+
+    // Lowest document number that may still be live, the next to drop
+    private int mOldest;
+
+    // Per document scratch arrays of search(), reused by the next search. Only the entries
+    // of the documents a search touched are set, and it sets them back to 0.
+    private int[] mMatched = new int[0];
+    private int[] mScore = new int[0];
+    private int[] mBest = new int[0];
+
+    public BookIndex() {
+        this(MAX_BOOKS);
+    }
+
+    /**
+     * Create an index that keeps at most the given number of books.
+     */
+    BookIndex(int maxBooks) {
+        mMaxBooks = maxBooks;
+    }
+
+    /**
+     * Return the index shared by the whole app.
+     */
+    public static BookIndex getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Add the book to the index, or replace the book with the same key.
+     */
+    public synchronized void add(Book book) {
+        String key = book.getKey();
+        Integer document = mDocuments.get(key);
+        if (document != null) {
+            Book indexed = mBooks.get(document);
+            if (indexed.hasSameContents(book)) {
+                // Seen before, e.g. in the cache and then again from the network
+                return;
+            }
+            // The words of the old book stay in the index, they are skipped while searching
+            mBooks.set(document, null);
+        }
+        document = mBooks.size();
+        mBooks.add(book);
+        mDocuments.put(key, document);
+
+        addWords(document, book.getTitle(), TITLE_WEIGHT);
+        for (String author : book.getAuthors()) {
+            addWords(document, author, AUTHOR_WEIGHT);
+        }
+        addWords(document, book.getPublisher(), PUBLISHER_WEIGHT);
+        for (String category : book.getCategoryList()) {
+            addWords(document, category, CATEGORY_WEIGHT);
+        }
+        addWords(document, book.getDescription(), DESCRIPTION_WEIGHT);
+
+        while (mDocuments.size() > mMaxBooks) {
+            dropOldest();
+        }
+        if (mBooks.size() - mDocuments.size() > mDocuments.size()) {
+            // More replaced books than live ones, their words are not worth keeping
+            rebuild();
+        }
+    }
+
+    /**
+     * Add all the books to the index. They are added in chunks, and the index is free for
+     * a search between two chunks, so a large catalog does not hold up the searches.
+     */
+    public void addAll(Collection<Book> books) {
+        Iterator<Book> iterator = books.iterator();
+        while (iterator.hasNext()) {
+            synchronized (this) {
+                for (int i = 0; i < ADD_CHUNK && iterator.hasNext(); i++) {
+                    add(iterator.next());
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the books that contain every word of the query, the best matches first.
+     * Every word of the query matches the words that start with it.
+     *
+     * @param query is the text typed by the user
+     * @param limit is the maximum number of books to return
+     */
+    public synchronized List<Book> search(String query, int limit) {
+        List<String> queryWords = words(query, 1);
+        if (queryWords.size() > 1) {
+            // Short words are not indexed, like the "o" of "O'Reilly". Alone they are still
+            // a prefix of longer words.
+            List<String> longWords = words(query, MIN_WORD_LENGTH);
+            if (!longWords.isEmpty()) {
+                queryWords = longWords;
+            }
+        }
+        if (queryWords.isEmpty() || mDocuments.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // matched[document] is the number of query words the document matched so far,
+        // score[document] its score. Only documents that matched all the earlier words
+        // can go on, so the words with the fewest matches are taken first.
+        int documentCount = mBooks.size();
+        if (mMatched.length < documentCount) {
+            // Room for the books added since, the new arrays are all 0 too
+            int capacity = Math.max(documentCount, mMatched.length * 2);
+            mMatched = new int[capacity];
+            mScore = new int[capacity];
+            mBest = new int[capacity];
+        }
+        int[] matched = mMatched;
+        int[] score = mScore;
+        int[] best = mBest;
+        List<List<Postings>> postingsByWord = new ArrayList<>(queryWords.size());
+        for (String word : queryWords) {
+            postingsByWord.add(matches(word));
+        }
+        Collections.sort(postingsByWord, new Comparator<List<Postings>>() {
+            @Override
+            public int compare(List<Postings> a, List<Postings> b) {
+                long lhs = count(a);
+                long rhs = count(b);
+                return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+            }
+        });
+        if (count(postingsByWord.get(0)) == 0) {
+            // Some word of the query is in no book at all
+            return Collections.emptyList();
+        }
+
+        for (int round = 0; round < postingsByWord.size(); round++) {
+            for (Postings postings : postingsByWord.get(round)) {
+                for (int i = 0; i < postings.mSize; i++) {
+                    int document = postings.mDocuments[i];
+                    int weight = postings.mWeights[i];
+                    if (matched[document] == round) {
+                        // First word of the document that matches this query word
+                        matched[document] = round + 1;
+                        best[document] = weight;
+                        score[document] += weight;
+                    } else if (matched[document] == round + 1 && weight > best[document]) {
+                        // A better field for the same query word, e.g. the title
+                        score[document] += weight - best[document];
+                        best[document] = weight;
+                    }
+                }
+            }
+        }
+
+        return top(postingsByWord.get(0), postingsByWord.size(), limit);
+    }
+
+    /**
+     * Returns the number of books in the index.
+     */
+    public synchronized int size() {
+        return mDocuments.size();
+    }
+
+    /**
+     * Returns the number of different words in the index.
+     */
+    public synchronized int wordCount() {
+        return mWords.size();
+    }
+
+    /**
+     * Remove all the books.
+     */
+    public synchronized void clear() {
+        mBooks.clear();
+        mDocuments.clear();
+        mWords.clear();
+        mOldest = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BookIndex{books=" + size() + " words=" + wordCount() + "}";
+    }
+
+    /**
+     * Split the text into lower case words of letters and digits.
+     *
+     * @param minLength is the length of the shortest word to keep
+     */
+    static List<String> words(String text, int minLength) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // A set, so a word repeated in the text is only counted once
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                if (word.length() >= minLength) {
+                    words.add(word.toString());
+                }
+                word.setLength(0);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    private void addWords(int document, String text, int weight) {
+        for (String word : words(text, MIN_WORD_LENGTH)) {
+            Postings postings = mWords.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                mWords.put(word, postings);
+            }
+            postings.add(document, weight);
+        }
+    }
+
+    /**
+     * Return the postings of all the words that start with the prefix.
+     */
+    private List<Postings> matches(String prefix) {
+        NavigableMap<String, Postings> range =
+                mWords.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        return new ArrayList<>(range.values());
+    }
+
+    private static long count(List<Postings> postingsList) {
+        long count = 0;
+        for (Postings postings : postingsList) {
+            count += postings.mSize;
+        }
+        return count;
+    }
+
+    /**
+     * Drop the live book that was added first. Its words stay until the next rebuild.
+     */
+    private void dropOldest() {
+        while (mBooks.get(mOldest) == null) {
+            mOldest++;
+        }
+        mDocuments.remove(mBooks.get(mOldest).getKey());
+        mBooks.set(mOldest, null);
+        mOldest++;
+    }
+
+    /**
+     * Return the best scored live documents that matched all the query words, and set the
+     * scratch arrays back to 0. Documents of the same score keep the order they were added in.
+     *
+     * @param candidates are the postings of the first query word, every document that
+     *                   matched all the words is in them
+     */
+    private List<Book> top(List<Postings> candidates, int wordCount, int limit) {
+        final int[] matched = mMatched;
+        final int[] score = mScore;
+        // The worst of the kept documents is at the head of the queue
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (score[a] != score[b]) {
+                    return score[a] < score[b] ? -1 : 1;
+                }
+                return b.compareTo(a);
+            }
+        });
+        for (Postings postings : candidates) {
+            for (int i = 0; i < postings.mSize; i++) {
+                int document = postings.mDocuments[i];
+                // A document in several postings is only taken the first time
+                if (matched[document] == wordCount && mBooks.get(document) != null) {
+                    matched[document] = -1;
+                    top.add(document);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+        }
+        Book[] books = new Book[top.size()];
+        for (int i = books.length - 1; i >= 0; i--) {
+            books[i] = mBooks.get(top.poll());
+        }
+        for (Postings postings : candidates) {
+            for (int i = 0; i < postings.mSize; i++) {
+                int document = postings.mDocuments[i];
+                matched[document] = 0;
+                score[document] = 0;
+                mBest[document] = 0;
+            }
+        }
+        List<Book> result = new ArrayList<>(books.length);
+        Collections.addAll(result, books);
+        return result;
+    }
+
+    /**
+     * Index the live books again, without the words of the replaced ones.
+     */
+    private void rebuild() {
+        List<Book> books = new ArrayList<>(mDocuments.size());
+        for (Book book : mBooks) {
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        clear();
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    /**
+     * The documents that contain a word, in increasing order, with the weight of the best
+     * field the word was found in.
+     */
+    private static class Postings {
+        int[] mDocuments = new int[2];
+        byte[] mWeights = new byte[2];
+        int mSize;
+
+        void add(int document, int weight) {
+            // Documents are added in increasing order, a repeat can only be the last one
+            if (mSize > 0 && mDocuments[mSize - 1] == document) {
+                if (weight > mWeights[mSize - 1]) {
+                    mWeights[mSize - 1] = (byte) weight;
+                }
+                return;
+            }
+            if (mSize == mDocuments.length) {
+                int capacity = mSize * 2;
+                int[] documents = new int[capacity];
+                byte[] weights = new byte[capacity];
+                System.arraycopy(mDocuments, 0, documents, 0, mSize);
+                System.arraycopy(mWeights, 0, weights, 0, mSize);
+                mDocuments = documents;
+                mWeights = weights;
+            }
+            mDocuments[mSize] = document;
+            mWeights[mSize] = (byte) weight;
+            mSize++;
+        }
+    }
+}
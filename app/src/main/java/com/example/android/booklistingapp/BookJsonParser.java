@@ -0,0 +1,190 @@
+package com.example.android.booklistingapp;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for a whole Google Books API response read into a String, built on the
+ * org.json tree. The app parses the responses with {@link BookStreamParser}; this parser
+ * is kept as the reference the streaming parser is tested and benchmarked against.
+ */
+public final class BookJsonParser {
+    private static final String LOG_TAG = BookJsonParser.class.getSimpleName();
+
+    // Buffer of each thread, reused for the responses the thread reads one after the other
+    private static final ThreadLocal<ResponseBuffer> sBuffers = new ThreadLocal<ResponseBuffer>() {
+        @Override
+        protected ResponseBuffer initialValue() {
+            return new ResponseBuffer();
+        }
+    };
+
+    //An empty private constructor makes sure that the class is not going to be initialised.
+    private BookJsonParser() {
+    }
+
+    /**
+     * Return list of {@link Book} objects that has been built up from
+     * parsing a JSON response.
+     */
+
+    public static List<Book> parse(String booksJSON) {
+
+        // If the JSON string is empty or null, then return early.
+        if (TextUtils.isEmpty(booksJSON)) {
+            return null;
+        }
+
+        // Create an empty ArrayList to which we can start adding books
+        List<Book> books = new ArrayList<>();
+
+        // Try to parse the JSON response string. If there's a problem with the way the JSON
+        // is formatted, a JSONException exception object will be thrown.
+        // Catch the exception so the app doesn't crash, and print the error message to the logs.
+        try {
+            // Convert JSONObject from the JSON response string
+            JSONObject baseJsonResponse = new JSONObject(booksJSON);
+
+            if (baseJsonResponse.has("items")) {
+                // Extract "items" JSONArray associated with the key called "items"
+                // which represents a list of information about the book
+                JSONArray booksArray = baseJsonResponse.getJSONArray("items");
+
+                // For each book in the booksArray, create an {@link Books} object
+                for (int i = 0; i < booksArray.length(); i++) {
+                    // Get a single book and position it within the list of books
+                    JSONObject currentBook = booksArray.getJSONObject(i);
+
+                    // Extract the volume id, which tells the book apart in the list
+                    String id = currentBook.optString("id", null);
+
+                    // For a given book, extract the JSONObject associated with the
+                    // key called "volumeInfo", which represents a list of all information
+                    // for that book
+                    JSONObject volumeInfo = currentBook.getJSONObject("volumeInfo");
+
+                    // Extract the value from the key called "title"
+                    String title = volumeInfo.getString("title");
+
+
+                    /// Extract "authors" JSONArray associated with the key called "authors"
+                    // which may represents a list of authors of the book
+                    String[] authors = readStrings(volumeInfo, "authors");
+
+                    /// Extract "categories" JSONArray associated with the key called "categories"
+                    // which may represents a list of categories of the book
+                    String[] categories = readStrings(volumeInfo, "categories");
+
+
+                    // Extract the URL of the book
+                    String url = null;
+                    if (volumeInfo.has("infoLink")) {
+                        url = volumeInfo.getString("infoLink");
+                    }
+
+                    // Extract the value from the key called "publishedDate"
+                    String publishedDate = "";
+                    if (volumeInfo.has("publishedDate")) {
+                        publishedDate = volumeInfo.getString("publishedDate");
+                    } else {
+                        publishedDate = "";
+                    }
+
+                    // The partial response leaves out "imageLinks" of books without a cover
+                    JSONObject imageLinks = volumeInfo.optJSONObject("imageLinks");
+                    String thumbnailLink = "";
+                    boolean pictureUrlExists = imageLinks != null && imageLinks.has("smallThumbnail");
+                    if (pictureUrlExists) {
+                        thumbnailLink = imageLinks.getString("smallThumbnail");
+                    }
+
+                    // Extract the value from the key called "description"
+                    String description = "";
+                    if (volumeInfo.has("description")) {
+                        description = volumeInfo.getString("description");
+                    } else {
+                        description = "";
+                    }
+
+                    // Extract the value from the key called "description"
+                    String publisher = "";
+                    if (volumeInfo.has("publisher")) {
+                        publisher = volumeInfo.getString("publisher");
+                    } else {
+                        publisher = "";
+                    }
+
+                    // Create a new {@link Books} object with the title, subtitle and authors
+                    // from the JSON response.
+                    Book booksObject = new Book(id, title, authors, publisher, url, publishedDate, categories, description, thumbnailLink);
+
+                    // Add the new {@link Books} to the list of books
+                    books.add(booksObject);
+                }
+            }
+        }
+        catch (JSONException e) {
+            // If an error is thrown when executing any of the above statements in the "try" block,
+            // catch the exception here, so the app doesn't crash. Print a log message
+            // with the message from the exception.
+            Log.e(LOG_TAG, "Problem parsing the JSON list books", e);
+        }
+
+        // Return the list of books
+        return books;
+    }
+
+    /**
+     * Return the strings of the JSONArray associated with the key, or an empty array
+     * when there is no such key.
+     */
+    private static String[] readStrings(JSONObject object, String key) throws JSONException {
+        JSONArray array = object.optJSONArray(key);
+        if (array == null) {
+            return new String[0];
+        }
+        String[] values = new String[array.length()];
+        // Iterate the JSONArray and collect the values
+        for (int n = 0; n < array.length(); n++) {
+            values[n] = array.getString(n);
+        }
+        return values;
+    }
+
+    /**
+     * Convert the {@link InputStream} into a String which contains the
+     * whole JSON response from the server, exactly as it was sent.
+     */
+    static String readFromStream(InputStream inputStream) throws IOException {
+        return readFromStream(inputStream, -1);
+    }
+
+    /**
+     * Convert the {@link InputStream} into a String which contains the
+     * whole JSON response from the server, exactly as it was sent.
+     *
+     * @param contentLength is the length of the response in bytes, or -1 if it is not known
+     */
+    static String readFromStream(InputStream inputStream, int contentLength) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+        ResponseBuffer buffer = sBuffers.get();
+        try {
+            buffer.read(inputStream, contentLength);
+            // The tree parser only takes a String, this is the one copy of the text
+            return buffer.toString();
+        } finally {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.android.booklistingapp;
+
+import java.util.LinkedList;
+
+/**
+ * Keeps track of the result pages of one search that are held in memory.
+ * <p>
+ * Pages are loaded with the "startIndex" parameter of the Google Books API. At most
+ * {@link #MAX_PAGES} pages are kept: appending a page past the limit drops the first one,
+ * and prepending a page drops the last one, so browsing a large result set needs a
+ * constant amount of memory. All the methods must be called on the UI thread.
+ */
+public class BookPager {
+
+    // Number of books requested per page
+    public static final int PAGE_SIZE = 20;
+
+    // Number of pages held in memory at the same time
+    public static final int MAX_PAGES = 5;
+
+    // Search word of the query
+    private final String mQuery;
+
+    // Pages held in memory, first page first
+    private final LinkedList<Page> mPages = new LinkedList<>();
+
+    // True when the last loaded page was empty
+    private boolean mEndReached;
+
+    // True while a page is being loaded
+    private boolean mLoading;
+
+    public BookPager(String query) {
+        mQuery = query;
+    }
+
+    public String getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * Returns the startIndex of the page after the last page in memory.
+     */
+    public int nextStartIndex() {
+        return mPages.isEmpty() ? 0 : mPages.getLast().mStartIndex + PAGE_SIZE;
+    }
+
+    /**
+     * Returns the startIndex of the page before the first page in memory.
+     */
+    public int previousStartIndex() {
+        return mPages.isEmpty() ? 0 : Math.max(0, mPages.getFirst().mStartIndex - PAGE_SIZE);
+    }
+
+    public boolean hasNext() {
+        return !mEndReached;
+    }
+
+    /**
+     * Returns true if pages before the first page in memory were dropped.
+     */
+    public boolean hasPrevious() {
+        return !mPages.isEmpty() && mPages.getFirst().mStartIndex > 0;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    public void setLoading(boolean loading) {
+        mLoading = loading;
+    }
+
+    /**
+     * Returns the number of books held in memory.
+     */
+    public int itemCount() {
+        int count = 0;
+        for (Page page : mPages) {
+            count += page.mSize;
+        }
+        return count;
+    }
+
+    public int pageCount() {
+        return mPages.size();
+    }
+
+    /**
+     * Record a page loaded after the last page in memory.
+     *
+     * @param startIndex is the startIndex the page was requested with
+     * @param size       is the number of books in the page
+     * @return the number of books to drop from the start of the list, 0 if none
+     */
+    public int append(int startIndex, int size) {
+        return append(startIndex, size, size);
+    }
+
+    /**
+     * Record a page loaded after the last page in memory, of which only some books are shown
+     * because the others were already in the list.
+     *
+     * @param startIndex is the startIndex the page was requested with
+     * @param loaded     is the number of books in the page
+     * @param shown      is the number of books of the page added to the list
+     * @return the number of books to drop from the start of the list, 0 if none
+     */
+    public int append(int startIndex, int loaded, int shown) {
+        if (loaded == 0) {
+            mEndReached = true;
+            return 0;
+        }
+        // Kept even when all its books were shown already, the next page comes after it
+        mPages.addLast(new Page(startIndex, shown));
+        if (mPages.size() <= MAX_PAGES) {
+            return 0;
+        }
+        return mPages.removeFirst().mSize;
+    }
+
+    /**
+     * Record a page loaded before the first page in memory.
+     *
+     * @param startIndex is the startIndex the page was requested with
+     * @param size       is the number of books in the page
+     * @return the number of books to drop from the end of the list, 0 if none
+     */
+    public int prepend(int startIndex, int size) {
+        // Keep the page even when it is empty, so the same page is not asked for again
+        mPages.addFirst(new Page(startIndex, size));
+        if (mPages.size() <= MAX_PAGES) {
+            return 0;
+        }
+        // The end is no longer in memory, so there is a next page again
+        mEndReached = false;
+        return mPages.removeLast().mSize;
+    }
+
+    /**
+     * A page of results held in memory.
+     */
+    private static class Page {
+        final int mStartIndex;
+
+        // Number of rows of the page in the list
+        final int mSize;
+
+        Page(int startIndex, int size) {
+            mStartIndex = startIndex;
+            mSize = size;
+        }
+    }
+}
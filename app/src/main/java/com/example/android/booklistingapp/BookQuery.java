@@ -0,0 +1,61 @@
+package com.example.android.booklistingapp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Builds the request URLs of the Google Books API.
+ */
+public final class BookQuery {
+
+    // URL from Google API
+    public static final String BOOK_URL_BASE =
+            "https://www.googleapis.com/books/v1/volumes?q=";
+
+    // Index of the first result of a page, added to the search query
+    private static final String START_INDEX = "&startIndex=";
+
+    // Number of results of a page, added to the search query
+    private static final String MAX_RESULTS = "&maxResults=";
+
+    // Partial response: only the fields the parsers read are sent, instead of the
+    // whole volume resource with its sale, access and search information
+    static final String FIELDS = "&fields=items(id,volumeInfo(title,authors,publisher,publishedDate,"
+            + "description,categories,imageLinks/smallThumbnail,infoLink))";
+
+    //An empty private constructor makes sure that the class is not going to be initialised.
+    private BookQuery() {
+    }
+
+    /**
+     * Return the URL of one page of results for the search word.
+     *
+     * @param searchWord is the search word as the user typed it, e.g. "c++" or
+     *                   "subject:fiction"; it is URL encoded here
+     * @param startIndex is the index of the first result of the page
+     * @param maxResults is the number of results of the page
+     */
+    public static String pageUrl(String searchWord, int startIndex, int maxResults) {
+        return pageUrl(BOOK_URL_BASE, searchWord, startIndex, maxResults);
+    }
+
+    /**
+     * Return the URL of one page of results for the search word, on another server than
+     * the Google Books API, e.g. a mock server.
+     *
+     * @param baseUrl is the URL the search word is added to, like {@link #BOOK_URL_BASE}
+     */
+    public static String pageUrl(String baseUrl, String searchWord, int startIndex, int maxResults) {
+        return baseUrl + encode(searchWord) + START_INDEX + startIndex + MAX_RESULTS + maxResults
+                + FIELDS;
+    }
+
+    private static String encode(String searchWord) {
+        try {
+            return URLEncoder.encode(searchWord, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM supports UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.android.booklistingapp;
+
+import java.util.List;
+
+/**
+ * Result of one request to the Google Books API.
+ */
+class BookResponse {
+
+    // HTTP response code, or -1 when no response was received
+    int responseCode = -1;
+
+    // Books parsed from the response, null unless the response code is 200
+    List<Book> books;
+
+    // Validators sent by the server, used to revalidate a cached response
+    String eTag;
+    String lastModified;
+
+    // Wait asked for by the Retry-After header of a failed response, in milliseconds, or -1
+    long retryAfter = -1;
+
+    boolean isSuccessful() {
+        return responseCode == 200 && books != null;
+    }
+
+    boolean isNotModified() {
+        return responseCode == 304;
+    }
+
+    /**
+     * Returns true if the request failed because of the API or the network, not because
+     * of the request itself.
+     */
+    boolean isServiceFailure() {
+        return responseCode == -1 || RetryPolicy.isRetryable(responseCode);
+    }
+}
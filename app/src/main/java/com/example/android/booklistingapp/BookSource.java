@@ -0,0 +1,23 @@
+package com.example.android.booklistingapp;
+
+import java.util.List;
+
+/**
+ * Where the pages of a search come from: the Google Books API, the cache of earlier results,
+ * or a mock server in tests and load tests.
+ * <p>
+ * Implementations are called on background threads and must be thread safe.
+ */
+public interface BookSource {
+
+    /**
+     * Return one page of results for the search word, or null if the page could not be loaded.
+     * This may block, and should return soon after the thread is interrupted.
+     *
+     * @param searchWord  is the search word, without spaces
+     * @param startIndex  is the index of the first result of the page
+     * @param maxResults  is the number of results of the page
+     * @param isConnected is false when the device has no network connection
+     */
+    List<Book> fetchPage(String searchWord, int startIndex, int maxResults, boolean isConnected);
+}
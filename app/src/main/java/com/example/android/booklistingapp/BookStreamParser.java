@@ -0,0 +1,222 @@
+package com.example.android.booklistingapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull based parser for the Google Books API response.
+ * <p>
+ * Unlike {@link BookJsonParser#parse(String)} it never holds the whole response
+ * body or a JSON tree in memory. It walks the tokens of "items[].volumeInfo" straight from the
+ * stream and hands every {@link Book} to a {@link BookListener} as soon as it is complete.
+ */
+public final class BookStreamParser {
+
+    private static final String[] NONE = new String[0];
+
+    /**
+     * Receives the books one by one, in the order they appear in the response.
+     */
+    public interface BookListener {
+        void onBook(Book book);
+    }
+
+    //An empty private constructor makes sure that the class is not going to be initialised.
+    private BookStreamParser() {
+    }
+
+    /**
+     * Parse the response from the given {@link InputStream} and return the list of books.
+     */
+    public static List<Book> parse(InputStream inputStream) throws IOException {
+        return parse(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Parse the response from the given {@link Reader} and return the list of books.
+     */
+    public static List<Book> parse(Reader input) throws IOException {
+        final List<Book> books = new ArrayList<>();
+        parse(input, new BookListener() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        });
+        return books;
+    }
+
+    /**
+     * Parse the response from the given {@link Reader} and emit every book to the listener.
+     */
+    public static void parse(Reader input, BookListener listener) throws IOException {
+        JsonReader reader = new JsonReader(input);
+        reader.setLenient(true);
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("items") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                readItems(reader, listener);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read the "items" array, one book at a time. Stops with an {@link InterruptedIOException}
+     * when the thread is interrupted, e.g. by cancelling the task that runs the parser.
+     */
+    private static void readItems(JsonReader reader, BookListener listener) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Parsing cancelled");
+            }
+            Book book = readItem(reader);
+            if (book != null) {
+                listener.onBook(book);
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Read a single item and return the book described by its "volumeInfo",
+     * or null when the item has no "volumeInfo". {@link ParallelBookParser} reads
+     * runs of items with it too.
+     */
+    static Book readItem(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        Book book = null;
+        String id = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("id") && reader.peek() == JsonToken.STRING) {
+                id = reader.nextString();
+            } else if (name.equals("volumeInfo") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // The API sends the id before the volumeInfo. A book without an id is
+                // told apart by its URL instead, see Book#getKey().
+                book = readVolumeInfo(reader, id);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return book;
+    }
+
+    /**
+     * Read the "volumeInfo" object. Missing values get the same defaults as
+     * {@link BookJsonParser#parse(String)} gives them.
+     */
+    private static Book readVolumeInfo(JsonReader reader, String id) throws IOException {
+        String title = "";
+        String[] authors = NONE;
+        String[] categories = NONE;
+        String url = null;
+        String publishedDate = "";
+        String thumbnailLink = "";
+        String description = "";
+        String publisher = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "title":
+                    title = reader.nextString();
+                    break;
+                case "authors":
+                    authors = readStrings(reader);
+                    break;
+                case "categories":
+                    categories = readStrings(reader);
+                    break;
+                case "infoLink":
+                    url = reader.nextString();
+                    break;
+                case "publishedDate":
+                    publishedDate = reader.nextString();
+                    break;
+                case "imageLinks":
+                    thumbnailLink = readSmallThumbnail(reader);
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "publisher":
+                    publisher = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Book(id, title, authors, publisher, url, publishedDate, categories, description, thumbnailLink);
+    }
+
+    /**
+     * Read an array of strings, skipping null values.
+     */
+    private static String[] readStrings(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return NONE;
+        }
+        List<String> values = new ArrayList<>(4);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            values.add(reader.nextString());
+        }
+        reader.endArray();
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Read the "imageLinks" object and return its "smallThumbnail" link.
+     */
+    private static String readSmallThumbnail(JsonReader reader) throws IOException {
+        String thumbnailLink = "";
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return thumbnailLink;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("smallThumbnail") && reader.peek() == JsonToken.STRING) {
+                thumbnailLink = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return thumbnailLink;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.android.booklistingapp;
+
+import java.util.List;
+
+/**
+ * Loads the pages of a server from the {@link QueryCache} only, fresh or stale, and never
+ * from the network. Pages that were never cached are not found.
+ */
+public class CacheBookSource implements BookSource {
+
+    // URL of the server whose pages are read from the cache
+    private final String mBaseUrl;
+
+    private final QueryCache mCache;
+
+    /**
+     * Create a new source.
+     *
+     * @param baseUrl is the URL of the {@link HttpBookSource} that cached the pages
+     * @param cache   is the cache of the earlier results
+     */
+    public CacheBookSource(String baseUrl, QueryCache cache) {
+        mBaseUrl = baseUrl;
+        mCache = cache;
+    }
+
+    @Override
+    public List<Book> fetchPage(String searchWord, int startIndex, int maxResults, boolean isConnected) {
+        QueryCache.Entry entry = mCache.get(QueryCache.key(mBaseUrl, searchWord, startIndex));
+        return entry != null ? entry.getBooks() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheBookSource{" + mBaseUrl + "}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.booklistingapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs many queries of the Google Books API as a batch and collects their books, e.g. to
+ * write a {@link BookCatalog} that seeds devices and tests.
+ * <p>
+ * Every page goes through {@link UtilsQuerry#fetchBatchPage(String)}, with its retries and
+ * its circuit breaker, on the given executor; the executor decides how many requests run
+ * at the same time.
+ */
+public final class CatalogBatch {
+
+    // Largest page the API returns
+    public static final int MAX_PAGE_SIZE = 40;
+
+    //An empty private constructor makes sure that the class is not going to be initialised.
+    private CatalogBatch() {
+    }
+
+    /**
+     * Return the URLs of the first pages of every query, with {@link #MAX_PAGE_SIZE} books
+     * per page.
+     *
+     * @param queries   are the search queries, e.g. "android" or "subject:fiction"
+     * @param pageCount is the number of pages of every query
+     */
+    public static List<String> pageUrls(Collection<String> queries, int pageCount) {
+        List<String> urls = new ArrayList<>(queries.size() * pageCount);
+        for (String query : queries) {
+            for (int page = 0; page < pageCount; page++) {
+                urls.add(BookQuery.pageUrl(query.trim(), page * MAX_PAGE_SIZE, MAX_PAGE_SIZE));
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Fetch all the pages and return their books in the order of the URLs. A book that is
+     * in several pages is only returned the first time.
+     *
+     * @throws IOException            if a page could not be fetched
+     * @throws InterruptedIOException when the thread is interrupted
+     */
+    public static List<Book> fetch(List<String> urls, Executor executor) throws IOException {
+        List<FutureTask<List<Book>>> tasks = new ArrayList<>(urls.size());
+        for (final String url : urls) {
+            FutureTask<List<Book>> task = new FutureTask<>(new Callable<List<Book>>() {
+                @Override
+                public List<Book> call() throws IOException {
+                    List<Book> books = UtilsQuerry.fetchBatchPage(url);
+                    if (books == null) {
+                        throw new IOException("Could not fetch " + url);
+                    }
+                    return books;
+                }
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+
+        Map<String, Book> books = new LinkedHashMap<>();
+        try {
+            for (FutureTask<List<Book>> task : tasks) {
+                for (Book book : task.get()) {
+                    if (!books.containsKey(book.getKey())) {
+                        books.put(book.getKey(), book);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch cancelled");
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return new ArrayList<>(books.values());
+    }
+
+    /**
+     * Fetch all the pages and write their books to the file as a {@link BookCatalog}.
+     *
+     * @return the number of books written
+     */
+    public static int export(List<String> urls, Executor executor, File file) throws IOException {
+        List<Book> books = fetch(urls, executor);
+        BookCatalog.write(books, file);
+        return books.size();
+    }
+
+    private static void cancel(List<FutureTask<List<Book>>> tasks) {
+        for (FutureTask<List<Book>> task : tasks) {
+            task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.booklistingapp;
+
+/**
+ * Stops sending search requests for a while when the Google Books API keeps failing.
+ * <p>
+ * The breaker is closed while requests succeed. After a number of failures in a row it
+ * opens, and requests fail at once without going to the network, so the app shows cached
+ * results instead of waiting for timeouts. Once the open time is over one trial request is
+ * let through: if it succeeds the breaker closes, if it fails the breaker opens again.
+ * All the methods are thread safe.
+ */
+public class CircuitBreaker {
+
+    public static final int CLOSED = 0;
+    public static final int OPEN = 1;
+    public static final int HALF_OPEN = 2;
+
+    // Defaults: open after 5 failures in a row, for 30 seconds
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_OPEN_TIME = 30 * 1000;
+
+    // Number of failures in a row that opens the breaker
+    private final int mFailureThreshold;
+
+    // How long the breaker stays open, in milliseconds
+    private final long mOpenTime;
+
+    private int mState = CLOSED;
+
+    private int mFailureCount;
+
+    // Time until which requests fail at once, in milliseconds
+    private long mOpenUntil;
+
+    // Time the trial request was let through, in milliseconds
+    private long mTrialStartedAt;
+
+    /**
+     * Create a new, closed breaker.
+     *
+     * @param failureThreshold is the number of failures in a row that opens the breaker
+     * @param openTime         is how long the breaker stays open, in milliseconds
+     */
+    public CircuitBreaker(int failureThreshold, long openTime) {
+        mFailureThreshold = failureThreshold;
+        mOpenTime = openTime;
+    }
+
+    /**
+     * Returns the breaker used when nothing else was set.
+     */
+    public static CircuitBreaker defaults() {
+        return new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_TIME);
+    }
+
+    /**
+     * Returns true if a request may be sent. When the open time is over, only the first
+     * caller gets true, for the trial request.
+     *
+     * @param now is the current time, in milliseconds
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < mOpenUntil) {
+                    return false;
+                }
+                mState = HALF_OPEN;
+                mTrialStartedAt = now;
+                return true;
+            default:
+                // The trial request is still running, unless it was cancelled without
+                // telling how it went
+                if (now - mTrialStartedAt < mOpenTime) {
+                    return false;
+                }
+                mTrialStartedAt = now;
+                return true;
+        }
+    }
+
+    /**
+     * Record a request the API answered normally.
+     */
+    public synchronized void onSuccess() {
+        mState = CLOSED;
+        mFailureCount = 0;
+    }
+
+    /**
+     * Record a request that failed because of the API or the network.
+     *
+     * @param now        is the current time, in milliseconds
+     * @param retryAfter is the wait asked for by the server, in milliseconds, or -1. The
+     *                   breaker stays open at least that long once it opens.
+     */
+    public synchronized void onFailure(long now, long retryAfter) {
+        mFailureCount++;
+        if (mState == HALF_OPEN || mFailureCount >= mFailureThreshold) {
+            mState = OPEN;
+            mOpenUntil = now + Math.max(mOpenTime, retryAfter);
+        }
+    }
+
+    /**
+     * Returns {@link #CLOSED}, {@link #OPEN} or {@link #HALF_OPEN}. An open breaker whose
+     * open time is over is reported as half open.
+     */
+    public synchronized int getState(long now) {
+        if (mState == OPEN && now >= mOpenUntil) {
+            return HALF_OPEN;
+        }
+        return mState;
+    }
+
+    @Override
+    public synchronized String toString() {
+        String[] names = {"closed", "open", "half open"};
+        return "CircuitBreaker{" + names[mState] + ", failures=" + mFailureCount + "}";
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.android.booklistingapp;
+
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Loads the book covers into the (recycled) ImageViews of the list.
+ * <p>
+ * Every ImageView is tagged with the URL it should show. When a view is recycled for another
+ * book, the download it was waiting for is cancelled if no other view needs it, and a late
+ * result is never shown in a view that moved on to another URL. Views that ask for the same
+ * URL at the same time share one download. The cache is told which bitmap every view shows,
+ * so the pixels of a cover on the screen are never decoded into. All the methods must be
+ * called on the UI thread.
+ */
+public class CoverLoader {
+
+    // Shown while the cover is loading or when there is no cover
+    private static final int PLACEHOLDER = R.mipmap.ic_launcher_round;
+
+    private final BitmapCache mBitmapCache;
+
+    // Decodes the downloaded files at the size of the ImageView
+    private final BitmapDecoder mBitmapDecoder;
+
+    // Downloads in flight, by URL
+    private final Map<String, DownloadImagesTask> mTasks = new HashMap<>();
+
+    // Cover every view shows, attached in the cache. Weak, so the views of a destroyed
+    // activity don't stay; their covers are then just never reused.
+    private final Map<ImageView, Bitmap> mShownCovers = new WeakHashMap<>();
+
+    // Counts where the covers come from, and records their decode time
+    private final Metrics mMetrics = Metrics.getInstance();
+
+    /**
+     * Create a new loader.
+     *
+     * @param bitmapCache is the cache for the decoded covers and the downloaded files
+     * @param coverSize   is the size of the cover ImageView content, in pixels
+     */
+    public CoverLoader(BitmapCache bitmapCache, int coverSize) {
+        mBitmapCache = bitmapCache;
+        mBitmapDecoder = new BitmapDecoder(coverSize, coverSize);
+    }
+
+    /**
+     * Show the cover from the given URL in the ImageView.
+     */
+    public void load(String url, ImageView imageView) {
+        String currentUrl = (String) imageView.getTag();
+        if (url.equals(currentUrl)) {
+            // The view is already waiting for this cover
+            return;
+        }
+        detach(imageView);
+
+        Bitmap cachedCover = mBitmapCache.getAndAttach(url);
+        if (cachedCover != null) {
+            mMetrics.counter("cover.memory_hit").increment();
+            show(imageView, cachedCover);
+            // The view holds the cover now
+            mBitmapCache.detach(cachedCover);
+            return;
+        }
+
+        release(imageView);
+        imageView.setImageResource(PLACEHOLDER);
+        if (url.isEmpty()) {
+            return;
+        }
+        mMetrics.counter("cover.memory_miss").increment();
+        imageView.setTag(url);
+        DownloadImagesTask task = mTasks.get(url);
+        if (task != null && task.mPriority < TaskScheduler.PRIORITY_VISIBLE && !task.mStarted) {
+            // A prefetch still waiting in the queue, start it again in front of the queue
+            task.cancel(false);
+            mTasks.remove(url);
+            task = null;
+        }
+        if (task == null) {
+            // Rows being bound are on the screen, so their covers go first
+            task = start(url, TaskScheduler.PRIORITY_VISIBLE, null);
+        }
+        task.mImageViews.add(imageView);
+    }
+
+    /**
+     * Load the cover from the given URL into the cache, without showing it, because its
+     * row is about to come on the screen.
+     *
+     * @param budget is charged with the bytes of the cover once they are downloaded, a cover
+     *               found in the disk cache costs nothing
+     * @return true if a download was started, false if the cover is cached or already loading
+     */
+    public boolean prefetch(String url, BandwidthBudget budget) {
+        if (url == null || url.isEmpty() || mTasks.containsKey(url)
+                || mBitmapCache.contains(url)) {
+            return false;
+        }
+        start(url, TaskScheduler.PRIORITY_OFFSCREEN, budget);
+        return true;
+    }
+
+    /**
+     * Stop loading a cover into the ImageView, e.g. because its row went off the screen.
+     */
+    public void cancel(ImageView imageView) {
+        detach(imageView);
+        release(imageView);
+    }
+
+    private void show(ImageView imageView, Bitmap cover) {
+        release(imageView);
+        mBitmapCache.attach(cover);
+        mShownCovers.put(imageView, cover);
+        imageView.setImageBitmap(cover);
+    }
+
+    /**
+     * The view does not show its cover anymore, the cover may be decoded into once it
+     * is evicted.
+     */
+    private void release(ImageView imageView) {
+        Bitmap cover = mShownCovers.remove(imageView);
+        if (cover != null) {
+            mBitmapCache.detach(cover);
+        }
+    }
+
+    /**
+     * Stop waiting for the cover the ImageView asked for before, and cancel its download
+     * when no other view needs it.
+     */
+    private void detach(ImageView imageView) {
+        String url = (String) imageView.getTag();
+        imageView.setTag(null);
+        if (url == null) {
+            return;
+        }
+        DownloadImagesTask task = mTasks.get(url);
+        if (task == null) {
+            return;
+        }
+        task.mImageViews.remove(imageView);
+        if (task.mImageViews.isEmpty()) {
+            mTasks.remove(url);
+            task.cancel(true);
+        }
+    }
+
+    private DownloadImagesTask start(String url, int priority, BandwidthBudget budget) {
+        DownloadImagesTask task = new DownloadImagesTask(url, priority, budget);
+        mTasks.put(url, task);
+        task.executeOnExecutor(TaskScheduler.getInstance().imageExecutor(priority));
+        return task;
+    }
+
+    private class DownloadImagesTask extends AsyncTask<Void, Void, Bitmap> {
+        private final String url;
+
+        // Priority the task was queued with
+        private final int mPriority;
+
+        // Set once a thread picked the task from the queue
+        private volatile boolean mStarted;
+
+        // Views that are waiting for this cover, none for a prefetch
+        private final List<ImageView> mImageViews = new ArrayList<>();
+
+        // Charged with the downloaded bytes of a prefetch, null for the covers on the screen
+        private final BandwidthBudget mBudget;
+
+        DownloadImagesTask(String url, int priority, BandwidthBudget budget) {
+            this.url = url;
+            mPriority = priority;
+            mBudget = budget;
+        }
+
+        @Override
+        protected Bitmap doInBackground(Void... params) {
+            mStarted = true;
+            return download_Image(url);
+        }
+
+        @Override
+        protected void onPostExecute(Bitmap result) {
+            mTasks.remove(url);
+            for (ImageView imageView : mImageViews) {
+                // Skip views that were recycled for another book in the meantime
+                if (url.equals(imageView.getTag())) {
+                    imageView.setTag(null);
+                    if (result != null) {
+                        show(imageView, result);
+                    }
+                }
+            }
+            if (result != null) {
+                // The views hold the cover now
+                mBitmapCache.detach(result);
+            }
+        }
+
+        @Override
+        protected void onCancelled(Bitmap result) {
+            if (result != null) {
+                mBitmapCache.detach(result);
+            }
+        }
+
+        /**
+         * Return the cover for the URL, looking in the disk cache before going to the network.
+         */
+        private Bitmap download_Image(String urlParam) {
+            byte[] data = mBitmapCache.getImageData(urlParam);
+            if (data == null) {
+                mMetrics.counter("cover.download").increment();
+                data = fetch_Image(urlParam);
+                if (data == null) {
+                    return null;
+                }
+                if (mBudget != null) {
+                    mBudget.consume(data.length, SystemClock.elapsedRealtime());
+                }
+                mBitmapCache.putImageData(urlParam, data);
+            } else {
+                mMetrics.counter("cover.disk_hit").increment();
+            }
+            if (isCancelled()) {
+                // Keep the file for later, but do not spend time decoding it
+                return null;
+            }
+
+            Bitmap bmp;
+            long start = mMetrics.beginSection("cover.decode");
+            try {
+                bmp = mBitmapDecoder.decode(data, mBitmapCache);
+            } finally {
+                mMetrics.endSection("cover.decode", start);
+            }
+            if (null != bmp) {
+                // Held until the views show it, so it cannot be evicted and decoded into
+                // before that
+                mBitmapCache.attach(bmp);
+                mBitmapCache.putBitmap(urlParam, bmp);
+            }
+            return bmp;
+        }
+
+        /**
+         * Download the image file, or return null if that is not possible.
+         */
+        private byte[] fetch_Image(String urlParam) {
+            HttpClient.Response response = null;
+            try {
+                response = HttpClient.getInstance().get(new URL(urlParam), null, null);
+                if (response.getResponseCode() != 200) {
+                    return null;
+                }
+                InputStream is = response.getBody();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                return null;
+            } finally {
+                if (response != null) {
+                    try {
+                        // Hands the connection back to the pool for the next cover
+                        response.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+}
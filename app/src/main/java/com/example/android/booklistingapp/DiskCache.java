@@ -0,0 +1,242 @@
+package com.example.android.booklistingapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size bounded file cache. Every entry is stored in its own file named after the hash of
+ * its key. When the total size goes over the limit the least recently used files are deleted.
+ */
+public class DiskCache {
+    private static final String LOG_TAG = DiskCache.class.getSimpleName();
+
+    // Directory where the entries are stored
+    private final File mDirectory;
+
+    // Maximum size of all the entries together, in bytes
+    private final long mMaxSize;
+
+    // File name -> file size, in least recently used order
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(0, 0.75f, true);
+
+    // Current size of all the entries together, in bytes
+    private long mSize;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Create a new cache in the given directory.
+     *
+     * @param directory is the directory where the entries are stored
+     * @param maxSize   is the maximum size of all the entries together, in bytes
+     */
+    public DiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Could not create the cache directory " + mDirectory);
+        }
+        loadEntries();
+    }
+
+    /**
+     * Return the cached bytes for the key, or null if there are none.
+     */
+    public synchronized byte[] get(String key) {
+        String name = fileName(key);
+        // get() rather than containsKey(), so the entry moves to the most recently used end
+        if (mEntries.get(name) == null) {
+            mMissCount++;
+            return null;
+        }
+        File file = new File(mDirectory, name);
+        try {
+            byte[] data = readFile(file);
+            // Remember the access, so the order survives a restart of the app
+            file.setLastModified(System.currentTimeMillis());
+            mHitCount++;
+            return data;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the cache file " + file, e);
+            remove(name);
+            mMissCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Store the bytes for the key and evict old entries if the cache got too big.
+     */
+    public synchronized void put(String key, byte[] data) {
+        if (data.length > mMaxSize) {
+            return;
+        }
+        String name = fileName(key);
+        File file = new File(mDirectory, name);
+        File tmp = new File(mDirectory, name + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            out.write(data);
+            out.close();
+            out = null;
+            remove(name);
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Could not rename " + tmp);
+            }
+            mEntries.put(name, (long) data.length);
+            mSize += data.length;
+            trimToSize();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the cache file " + file, e);
+            tmp.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the bytes of all the entries, least recently used first. Reading them this way
+     * does not change the order of the entries, nor the hit and miss counts.
+     */
+    public synchronized List<byte[]> getAll() {
+        List<byte[]> all = new ArrayList<>(mEntries.size());
+        for (String name : new ArrayList<>(mEntries.keySet())) {
+            File file = new File(mDirectory, name);
+            try {
+                all.add(readFile(file));
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem reading the cache file " + file, e);
+                remove(name);
+            }
+        }
+        return all;
+    }
+
+    public synchronized long size() {
+        return mSize;
+    }
+
+    public long maxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Delete the least recently used entries until the cache fits into its maximum size.
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mSize -= eldest.getValue();
+            new File(mDirectory, eldest.getKey()).delete();
+            mEvictionCount++;
+        }
+    }
+
+    private void remove(String name) {
+        Long length = mEntries.remove(name);
+        if (length != null) {
+            mSize -= length;
+        }
+        new File(mDirectory, name).delete();
+    }
+
+    /**
+     * Rebuild the index from the files left by an earlier run, oldest first.
+     */
+    private void loadEntries() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long lhs = a.lastModified();
+                long rhs = b.lastModified();
+                return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            mEntries.put(file.getName(), file.length());
+            mSize += file.length();
+        }
+        trimToSize();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read == -1) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    /**
+     * Turn a key (for example an URL) into a safe file name.
+     */
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return String.valueOf(key.hashCode());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.android.booklistingapp;
+
+import android.content.Context;
+
+import java.util.List;
+
+/**
+ * Loads the pages from a server that speaks the Google Books API, through
+ * {@link UtilsQuerry}, with its retries, circuit breaker and shared requests.
+ * <p>
+ * With a {@link QueryCache} fresh pages are taken from the cache and stale ones are
+ * revalidated, like the app does; without one every page is a request.
+ */
+public class HttpBookSource implements BookSource {
+
+    private static HttpBookSource sInstance;
+
+    // URL the search word is added to
+    private final String mBaseUrl;
+
+    // Cache of the earlier results, or null
+    private final QueryCache mCache;
+
+    /**
+     * Return the source of the app: the Google Books API and the query cache.
+     */
+    public static synchronized HttpBookSource getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new HttpBookSource(BookQuery.BOOK_URL_BASE, QueryCache.getInstance(context));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Create a new source.
+     *
+     * @param baseUrl is the URL the search word is added to, like {@link BookQuery#BOOK_URL_BASE}
+     * @param cache   is the cache of the earlier results, or null to always send the request
+     */
+    public HttpBookSource(String baseUrl, QueryCache cache) {
+        mBaseUrl = baseUrl;
+        mCache = cache;
+    }
+
+    @Override
+    public List<Book> fetchPage(String searchWord, int startIndex, int maxResults, boolean isConnected) {
+        String url = BookQuery.pageUrl(mBaseUrl, searchWord, startIndex, maxResults);
+        if (mCache == null) {
+            return isConnected ? UtilsQuerry.fetchBookData(url) : null;
+        }
+        return UtilsQuerry.fetchBookData(url, mCache, QueryCache.key(mBaseUrl, searchWord, startIndex), isConnected);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpBookSource{" + mBaseUrl + (mCache != null ? " cached" : "") + "}";
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.android.booklistingapp;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP layer shared by the search requests and the cover downloads.
+ * <p>
+ * Every request asks for a gzip compressed response and unpacks it. Connections are never
+ * disconnected by hand: a response body that was read to the end and closed hands its
+ * connection back to the keep-alive pool of {@link HttpURLConnection}, so the next request
+ * to the same host skips the TCP and TLS handshakes.
+ */
+public class HttpClient {
+
+    // Largest rest of a body that is read on close to keep the connection alive, in bytes
+    private static final int MAX_DRAIN = 64 * 1024;
+
+    private static final HttpClient sInstance = new HttpClient(RequestConfig.defaults());
+
+    private volatile RequestConfig mConfig;
+
+    /**
+     * Return the client shared by the whole app.
+     */
+    public static HttpClient getInstance() {
+        return sInstance;
+    }
+
+    public HttpClient(RequestConfig config) {
+        mConfig = config;
+    }
+
+    public RequestConfig getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Replace the timeouts used by the next requests.
+     */
+    public void setConfig(RequestConfig config) {
+        mConfig = config;
+    }
+
+    /**
+     * Make a GET request. The caller must close the returned {@link Response}.
+     *
+     * @param url     is the URL to request
+     * @param headers are extra request headers, or null
+     * @param timing  receives the time of the connect, the host name lookup included, and
+     *                the time to the first byte, or null
+     */
+    public Response get(URL url, Map<String, String> headers, RequestTiming timing) throws IOException {
+        RequestConfig config = mConfig;
+        // The lookup is not timed on its own: that would take a lookup of its own, even
+        // for a connection that comes from the keep-alive pool and needs none
+        long start = System.nanoTime();
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(config.getConnectTimeout());
+        connection.setReadTimeout(config.getReadTimeout());
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        try {
+            connection.connect();
+            if (timing != null) {
+                timing.connectNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+            }
+            int responseCode = connection.getResponseCode();
+            if (timing != null) {
+                timing.firstByteNanos = System.nanoTime() - start;
+            }
+            return new Response(connection, responseCode);
+        } catch (IOException e) {
+            // Nothing was read, the connection cannot be reused
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Response to a request. Closing it after the body was read keeps the connection alive.
+     */
+    public static class Response implements Closeable {
+        private final HttpURLConnection mConnection;
+        private final int mResponseCode;
+        private InputStream mBody;
+
+        // Counts the bytes read from the connection, below the unpacking of the body
+        private CountingInputStream mRawBody;
+
+        Response(HttpURLConnection connection, int responseCode) {
+            mConnection = connection;
+            mResponseCode = responseCode;
+        }
+
+        public int getResponseCode() {
+            return mResponseCode;
+        }
+
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * Returns the length of the body as sent by the server, -1 if it is not known.
+         * For a compressed body this is the compressed length.
+         */
+        public int getContentLength() {
+            return mConnection.getContentLength();
+        }
+
+        /**
+         * Returns the body of the response, already uncompressed.
+         */
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                InputStream body = mResponseCode >= 400
+                        ? mConnection.getErrorStream() : mConnection.getInputStream();
+                if (body == null) {
+                    return null;
+                }
+                mRawBody = new CountingInputStream(body);
+                body = mRawBody;
+                if (isCompressed()) {
+                    body = new GZIPInputStream(body);
+                }
+                mBody = body;
+            }
+            return mBody;
+        }
+
+        /**
+         * Returns true if the body was sent gzip compressed, then its Content-Length is the
+         * compressed length.
+         */
+        public boolean isCompressed() {
+            return "gzip".equalsIgnoreCase(mConnection.getContentEncoding());
+        }
+
+        /**
+         * Returns the number of body bytes read from the connection so far, compressed as the
+         * server sent them, the rest read by {@link #close()} included.
+         */
+        public long getBytesReceived() {
+            return mRawBody == null ? 0 : mRawBody.mCount;
+        }
+
+        /**
+         * Read what is left of a small body and close it, so the connection goes back
+         * to the pool. A large rest is not worth reading, that connection is dropped.
+         */
+        @Override
+        public void close() throws IOException {
+            InputStream body = mBody;
+            if (body == null) {
+                body = mResponseCode >= 400 ? mConnection.getErrorStream() : mConnection.getInputStream();
+            }
+            if (body == null) {
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                // A cancelled request should stop now, not read the rest of the body
+                mConnection.disconnect();
+                body.close();
+                return;
+            }
+            try {
+                byte[] buffer = new byte[4096];
+                int drained = 0;
+                int read;
+                while (drained < MAX_DRAIN && (read = body.read(buffer)) != -1) {
+                    drained += read;
+                }
+                if (drained >= MAX_DRAIN) {
+                    mConnection.disconnect();
+                }
+            } catch (IOException e) {
+                mConnection.disconnect();
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * A stream that counts the bytes read from it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                mCount++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(count);
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.android.booklistingapp;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent requests and reports their percentiles.
+ * It can keep other measurements too, e.g. sizes, when it is given their unit.
+ */
+public class LatencyTracker {
+
+    // Most recent samples, in the unit of the tracker, used as a ring buffer
+    private final long[] mSamples;
+
+    // Number of samples recorded so far
+    private long mCount;
+
+    // Unit of the samples, shown by toString()
+    private final String mUnit;
+
+    /**
+     * @param capacity is the number of recent samples the percentiles are computed from
+     */
+    public LatencyTracker(int capacity) {
+        this(capacity, "ms");
+    }
+
+    /**
+     * @param capacity is the number of recent samples the percentiles are computed from
+     * @param unit     is the unit of the samples, e.g. "us" or "books"
+     */
+    public LatencyTracker(int capacity, String unit) {
+        mSamples = new long[capacity];
+        mUnit = unit;
+    }
+
+    public String getUnit() {
+        return mUnit;
+    }
+
+    /**
+     * Record a sample, in the unit of the tracker: milliseconds unless it was created with
+     * another unit, e.g. microseconds for the timers of the {@link Metrics}.
+     */
+    public synchronized void record(long sample) {
+        mSamples[(int) (mCount % mSamples.length)] = sample;
+        mCount++;
+    }
+
+    public synchronized long count() {
+        return mCount;
+    }
+
+    /**
+     * Return the given percentile (0-100) of the recent samples, or 0 when there are none.
+     */
+    public synchronized long percentile(int percentile) {
+        int size = (int) Math.min(mCount, mSamples.length);
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, size);
+        Arrays.sort(sorted);
+        // Nearest rank method
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[Math.max(0, Math.min(size, rank) - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + percentile(50) + mUnit + " p95=" + percentile(95) + mUnit + " n=" + count();
+    }
+}
@@ -1,38 +1,52 @@
 package com.example.android.booklistingapp;
 
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.app.FragmentManager;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.WindowManager;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.AdapterView;
 import android.widget.EditText;
 import android.widget.ImageButton;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements SearchFragment.Callbacks {
 
     // Tag for LOG Message
     private static final String LOG_TAG = MainActivity.class.getName();
 
-    // URL from Google API
-    private static final String BOOK_URL_BASE =
-            "https://www.googleapis.com/books/v1/volumes?q=";
+    // The next (or previous) page is loaded when the user scrolls this close to the end
+    // (or the start) of the list
+    private static final int PREFETCH_DISTANCE = 5;
 
-        // Add a maximum results of 10 to the search query
-    private static final String MAX_RESULTS = "&maxResults=10";
+    // Time without typing after which the typed search word is searched, in milliseconds
+    private static final long SEARCH_DELAY = 400;
+
+    // Shorter search words are only searched with the search button
+    private static final int MIN_QUERY_LENGTH = 3;
 
     // Adapter for the Book list
     private BookAdapter mAdapter;
@@ -46,45 +60,97 @@ public class MainActivity extends AppCompatActivity {
     // ProgressBar that is visible when
     private View loadingIndicator;
 
+    // List view with the books
+    private RecyclerView mBookListView;
+
+    // Lays out the rows of the list and tells which rows are visible
+    private LinearLayoutManager mLayoutManager;
+
+    // Used to check the network connection before every page
+    private ConnectivityManager mConnectivityManager;
+
+    // Holds the search, its books and the pages that are loading across configuration changes
+    private SearchFragment mSearchFragment;
+
+    // Pages of the current search, null before the first search
+    private BookPager mPager;
+
+    // Loads the next page and the upcoming covers while the UI thread is idle
+    private PrefetchEngine mPrefetchEngine;
+
+    // True when the user last scrolled towards the end of the list
+    private boolean mScrollingForward = true;
+
+    // Used to wait for a pause in the typing before searching
+    private final Handler mHandler = new Handler();
+
+    // True once the activity is destroyed, results that arrive later are dropped
+    private boolean mDestroyed;
+
+    // Searches the typed search word once the user stops typing
+    private final Runnable mSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            String searchWord = getSearchWord();
+            // Searching for the same word again would only repeat the current search
+            if (searchWord.length() >= MIN_QUERY_LENGTH
+                    && (mPager == null || !searchWord.equals(mPager.getQuery()))) {
+                startSearch(searchWord);
+            }
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
         //Create a ConnectivityManager and get the NetworkInfo from it
-        final ConnectivityManager cm = (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = cm.getActiveNetworkInfo();
-        final boolean isConnected = networkInfo != null && networkInfo.isConnectedOrConnecting();
-        //Create a boolean variable for the connectivity status
-
+        mConnectivityManager = (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
 
         // Find a reference to Views
-        final ListView bookListView = (ListView) findViewById(R.id.list_view);
+        mBookListView = (RecyclerView) findViewById(R.id.list_view);
         searchEditTextView = (EditText) findViewById(R.id.search_EditTextView);
         ImageButton searchButton = (ImageButton) findViewById(R.id.search_button);
         mEmptyView = (TextView) findViewById(R.id.empty_text_view);
         loadingIndicator = findViewById(R.id.progress_bar);
 
-        // Set empty state view on the list view with books, when there is no data.
-        bookListView.setEmptyView(mEmptyView);
+        // Books cached by earlier runs of the app, and the books of a catalog the device
+        // was seeded with, can be searched on the device
+        if (BookIndex.getInstance().size() == 0) {
+            final Context appContext = getApplicationContext();
+            TaskScheduler.getInstance().searchExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    File catalogFile = new File(appContext.getFilesDir(), BookCatalog.SEED_FILE_NAME);
+                    if (catalogFile.exists()) {
+                        try {
+                            // Decoded a chunk at a time while they are added. Past its limit the
+                            // index would only drop them again, so they are not decoded at all.
+                            List<Book> books = BookCatalog.open(catalogFile).asList();
+                            BookIndex.getInstance().addAll(
+                                    books.subList(0, Math.min(books.size(), BookIndex.MAX_BOOKS)));
+                        } catch (IOException | IllegalStateException e) {
+                            Log.e(LOG_TAG, "Problem reading the catalog " + catalogFile, e);
+                        }
+                    }
+                    BookIndex.getInstance().addAll(QueryCache.getInstance(appContext).getAllBooks());
+                }
+            });
+        }
 
         // Hide the keyboard when the app starts
         getWindow().setSoftInputMode(
                 WindowManager.LayoutParams.SOFT_INPUT_STATE_ALWAYS_HIDDEN);
-        Log.e(LOG_TAG, "Hide the keyboard.");
-
-        // Create new adapter that takes an empty list of books as input
-        mAdapter = new BookAdapter(this, new ArrayList<Book>());
 
-        // Set the adapter on the {@link ListView)
-        // so the list can be populated in the user interface
-        bookListView.setAdapter(mAdapter);
+        // The timed sections of the search, the list and the covers show up in systrace.
+        // Only in debug builds, release builds skip the cost of the trace calls.
+        Metrics.getInstance().setSystemTraceEnabled(BuildConfig.DEBUG);
 
-        // OnItemClickListener open the website for the current book
-        bookListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Create new adapter, the click on a book opens the website for the book
+        mAdapter = new BookAdapter(this, new BookAdapter.OnBookClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                Book currentBook = mAdapter.getItem(position);
+            public void onBookClick(Book currentBook) {
                 Uri bookUri = Uri.parse(currentBook.getUrl());
                 Intent webIntent = new Intent(Intent.ACTION_VIEW, bookUri);
                 if (webIntent.resolveActivity(getPackageManager()) != null) {
@@ -93,6 +159,56 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        // Set the adapter on the {@link RecyclerView}
+        // so the list can be populated in the user interface
+        mLayoutManager = new LinearLayoutManager(this);
+        mBookListView.setLayoutManager(mLayoutManager);
+        mBookListView.setHasFixedSize(true);
+        mBookListView.setAdapter(mAdapter);
+
+        // A recreated activity finds the search of the previous one, and shows its books
+        // without loading them again
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        mSearchFragment = (SearchFragment) fragmentManager.findFragmentByTag(SearchFragment.TAG);
+        if (mSearchFragment == null) {
+            mSearchFragment = new SearchFragment();
+            fragmentManager.beginTransaction().add(mSearchFragment, SearchFragment.TAG).commitNow();
+        }
+        mPrefetchEngine = new PrefetchEngine(this, mSearchFragment, mAdapter, mLayoutManager);
+        restoreSearch();
+
+        // Load the next page when the end of the list comes near, and a dropped
+        // earlier page when the user scrolls back to the start
+        mBookListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                // Once the list stops, prefetch what is past the rows the user stopped at
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    schedulePrefetch();
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy != 0) {
+                    mScrollingForward = dy > 0;
+                }
+                int totalItemCount = mAdapter.getItemCount();
+                // Books found on the device are not a page, the first page comes first
+                if (mPager == null || mPager.isLoading() || mPager.pageCount() == 0
+                        || totalItemCount == 0) {
+                    return;
+                }
+                int firstVisibleItem = mLayoutManager.findFirstVisibleItemPosition();
+                int lastVisibleItem = mLayoutManager.findLastVisibleItemPosition();
+                if (mPager.hasNext() && lastVisibleItem >= totalItemCount - 1 - PREFETCH_DISTANCE) {
+                    loadPage(mPager.nextStartIndex(), true);
+                } else if (mPager.hasPrevious() && firstVisibleItem <= PREFETCH_DISTANCE) {
+                    loadPage(mPager.previousStartIndex(), false);
+                }
+            }
+        });
+
         // Set a click listener to the ImageButton Search
         searchButton.setOnClickListener(new ImageButton.OnClickListener() {
             @Override
@@ -101,104 +217,329 @@ public class MainActivity extends AppCompatActivity {
                 InputMethodManager inputMethodManager = (InputMethodManager) getSystemService(Context.INPUT_METHOD_SERVICE);
                 inputMethodManager.hideSoftInputFromWindow(getCurrentFocus().getWindowToken(), InputMethodManager.HIDE_NOT_ALWAYS);
 
-                NetworkInfo activeNetworkInfo = cm.getActiveNetworkInfo();
-                final boolean isConnected = activeNetworkInfo != null && activeNetworkInfo.isConnectedOrConnecting();
-
-                //If there is a network connection
-                if (isConnected) {
-                    Log.e(LOG_TAG, "This is called if there is a internet connection.");
-                    String searchWord = searchEditTextView.getText().toString().replaceAll("\\s+", "")
-                            .toLowerCase();
-                    if (searchWord.isEmpty()) {
-                        Toast.makeText(MainActivity.this, getString(R.string.hint),
-                                Toast.LENGTH_SHORT).show();
-                    } else {
-                        Log.e(LOG_TAG, "This is called when there is an Internet connection and a new search word.");
-                        // Hide the empty state text
-                        mEmptyView.setVisibility(View.GONE);
-                        // Start the AsyncTask to fetch the books data
-                        new BookListAsyncTask().execute(BOOK_URL_BASE + searchWord + MAX_RESULTS);
-                        Log.e(LOG_TAG, "Show the URL with the user input: " + BOOK_URL_BASE
-                                + searchWord);
-                    }
-                } else {
-                    Log.e(LOG_TAG, "This is called when there is NO Internet connection.");
-                    // First, hide loading indicator so error will be visible
-                    loadingIndicator.setVisibility(View.GONE);
-                    bookListView.setVisibility(View.GONE);
-                    //Show the empty state with no connection error message
-                    mEmptyView.setVisibility(View.VISIBLE);
-                    //Update empty state with no connection error message
-                    mEmptyView.setText(R.string.no_connection);
+                // The button searches right away, a search waiting for the typing to stop
+                // is not needed anymore
+                mHandler.removeCallbacks(mSearchRunnable);
+                String searchWord = getSearchWord();
+                if (searchWord.isEmpty()) {
+                    Toast.makeText(MainActivity.this, getString(R.string.hint),
+                            Toast.LENGTH_SHORT).show();
+                    return;
                 }
+                // A second tap while the same search is loading would only cancel and
+                // repeat it
+                if (mPager != null && mPager.isLoading() && mPager.pageCount() == 0
+                        && searchWord.equals(mPager.getQuery())) {
+                    return;
+                }
+                startSearch(searchWord);
             }
         });
+
+        // Search as the user types, once the typing pauses for SEARCH_DELAY
+        searchEditTextView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mHandler.removeCallbacks(mSearchRunnable);
+                mHandler.postDelayed(mSearchRunnable, SEARCH_DELAY);
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        mDestroyed = true;
+        mHandler.removeCallbacks(mSearchRunnable);
+        mPrefetchEngine.cancel();
+        // The pages that are still loading are cancelled by the fragment, unless the
+        // activity is only being recreated
+        mSearchFragment.setBooks(mAdapter.getBooks());
+        super.onDestroy();
     }
 
     /**
-     * {@link AsyncTask} to perform the network request on a background thread, and
-     * then update the UI with the list of books in the response.
+     * Show the search held by the {@link SearchFragment}, as the previous activity left it.
+     * Pages that finished loading in the meantime are delivered by the fragment afterwards.
+     */
+    private void restoreSearch() {
+        mPager = mSearchFragment.getPager();
+        if (mPager == null) {
+            return;
+        }
+        List<Book> books = mSearchFragment.getBooks();
+        mAdapter.setBooks(books);
+        if (mPager.isLoading() && mPager.pageCount() == 0) {
+            loadingIndicator.setVisibility(View.VISIBLE);
+        } else if (!mPager.isLoading() && books.isEmpty()) {
+            showEmptyView();
+        }
+    }
+
+    /**
+     * Debug builds get a menu item that shows the {@link Metrics}.
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        if (!BuildConfig.DEBUG) {
+            return false;
+        }
+        getMenuInflater().inflate(R.menu.main, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_metrics) {
+            showMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Show the metrics of the app, with a button that shares them as JSON.
+     */
+    private void showMetrics() {
+        final Metrics metrics = Metrics.getInstance();
+        String dump = metrics.dump()
+                + "search latency: " + UtilsQuerry.getLatencyTracker() + "\n"
+                + UtilsQuerry.getCircuitBreaker() + "\n"
+                + TaskScheduler.getInstance();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.metrics)
+                .setMessage(dump)
+                .setPositiveButton(R.string.share, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        Intent shareIntent = new Intent(Intent.ACTION_SEND);
+                        shareIntent.setType("application/json");
+                        shareIntent.putExtra(Intent.EXTRA_TEXT, metrics.export());
+                        startActivity(Intent.createChooser(shareIntent, getString(R.string.metrics)));
+                    }
+                })
+                .setNegativeButton(R.string.close, null)
+                .show();
+    }
+
+    /**
+     * Prefetch the next page of the current search and the covers of the rows the user
+     * scrolls towards, once the UI thread is idle.
+     */
+    private void schedulePrefetch() {
+        if (mPager != null && mPager.pageCount() > 0) {
+            mPrefetchEngine.schedule(mPager, mScrollingForward);
+        }
+    }
+
+    /**
+     * Returns the search word typed by the user, without spaces and in lower case.
+     */
+    private String getSearchWord() {
+        return searchEditTextView.getText().toString().replaceAll("\\s+", "").toLowerCase();
+    }
+
+    /**
+     * Start a new search from its first page. The pages of the previous search that are
+     * still loading are cancelled, and their results will never reach the list.
      * <p>
-     * We''ll only override two of the methods of AsyncTask doInBackground() and onPostExecute()
-     * The doInBackground() runs on a background thread, so it can run long running code
-     * (like network activity), without interfering with the responsiveness of the app.
-     * The onPostExecute() is passed the result of the doInBackground() method, but runs on the
-     * UI thread, so it can use the produced data to update the UI.
+     * The books found on the device are searched on a background thread, and shown until
+     * the first page from the network replaces them. The books that are in both keep their rows.
      */
-    private class BookListAsyncTask extends AsyncTask<String, Void, List<Book>> {
+    private void startSearch(String searchWord) {
+        loadingIndicator.setVisibility(View.GONE);
+        // Hide the empty state text
+        mEmptyView.setVisibility(View.GONE);
+        mPager = mSearchFragment.startSearch(searchWord);
+        mSearchFragment.setShowingLocalResults(false);
+        searchLocalBooks(mPager, searchEditTextView.getText().toString());
+        loadPage(0, true);
+    }
 
-        /**
-         * This method runs on the UI thread before doInBackground().
-         * It shows the progress bar when the internet connection is delayed or slow.
-         */
-        @Override
-        protected void onPreExecute() {
-            Log.e(LOG_TAG, "When the onPreExecute is called?");
-            // Show loading indicator if the Internet Connection is delayed or slow.
+    /**
+     * Search the books on the device, and show them while the first page of the search is
+     * not loaded yet. They are dropped if another search started in the meantime.
+     */
+    private void searchLocalBooks(final BookPager pager, final String query) {
+        TaskScheduler.getInstance().searchExecutor(TaskScheduler.PRIORITY_VISIBLE).execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Book> localBooks = BookIndex.getInstance().search(query, BookPager.PAGE_SIZE);
+                if (localBooks.isEmpty()) {
+                    return;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDestroyed || pager != mPager || pager.pageCount() > 0) {
+                            return;
+                        }
+                        // The network may have found nothing already, the books replace the empty state
+                        mEmptyView.setVisibility(View.GONE);
+                        mSearchFragment.setShowingLocalResults(true);
+                        mAdapter.setBooks(localBooks);
+                        mLayoutManager.scrollToPosition(0);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns true if there is a network connection.
+     */
+    private boolean isConnected() {
+        NetworkInfo activeNetworkInfo = mConnectivityManager.getActiveNetworkInfo();
+        return activeNetworkInfo != null && activeNetworkInfo.isConnectedOrConnecting();
+    }
+
+    /**
+     * Start loading a page of the current search.
+     *
+     * @param startIndex is the index of the first result of the page
+     * @param append     is true to add the page after the books in the list,
+     *                   false to add it before them
+     */
+    private void loadPage(int startIndex, boolean append) {
+        // Without a connection only results cached by earlier searches can be shown
+        boolean isConnected = isConnected();
+        // Show loading indicator if the Internet Connection is delayed or slow.
+        // Later pages are loaded before the user reaches them, so they don't need it.
+        if (mPager.pageCount() == 0) {
             loadingIndicator.setVisibility(View.VISIBLE);
         }
+        mSearchFragment.loadPage(startIndex, append, isConnected);
+        // Debug logging is compiled out of release builds
+        if (BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, "Loading " + mPager.getQuery() + " from " + startIndex
+                    + (isConnected ? "" : " (offline)"));
+        }
+    }
 
-        /**
-         * This method runs on a background thread and performs the network request.
-         * We should not update the UI from a background thread, so we return a list of
-         * {@link Book}s as the result.
-         *
-         * @return {@link Book}s as the result
-         */
-        @Override
-        protected List<Book> doInBackground(String... urls) {
-            // Don't perform the request if there are no URLs, or the first URL is null.
-            if (urls.length < 1 || urls[0] == null) {
-                return null;
+    /**
+     * Add a loaded page to the list, and remove the page the {@link BookPager}
+     * drops to stay within its limit. The first visible book stays where it is.
+     * The first page of a search replaces the books of the previous search, but is merged
+     * with the books found on the device.
+     * <p>
+     * Books already in the list are left out, e.g. when the results moved between two
+     * requests, as the adapter needs one row per book.
+     */
+    private void showPage(int startIndex, boolean append, List<Book> books, boolean isFirstPage) {
+        if (isFirstPage) {
+            List<Book> newBooks = newBooks(books, new HashSet<String>());
+            if (mSearchFragment.isShowingLocalResults()) {
+                // The books found on the device that the server did not return stay after
+                // its page, and are dropped with it
+                Set<String> keys = new HashSet<>();
+                for (Book book : newBooks) {
+                    keys.add(book.getKey());
+                }
+                newBooks.addAll(newBooks(mAdapter.getBooks(), keys));
             }
-            List<Book> result = UtilsQuerry.fetchBookData(urls[0]);
-            return result;
+            mPager.append(startIndex, books.size(), newBooks.size());
+            // Books that were also found by the previous search keep their rows
+            mAdapter.setBooks(newBooks);
+            mLayoutManager.scrollToPosition(0);
+            return;
         }
 
-        /**
-         * This method runs on the main UI thread after the background work has
-         * completed. This method receives as input, the return value from the doInBackground()
-         * method. First clears out the adapter, to get get rid of books data from a previous
-         * query to Google Books API. Then updates the adapter with the new list of books,
-         * which will trigger the ListView to re-populate its list items.
-         */
-        @Override
-        protected void onPostExecute(List<Book> books) {
-            // First, hide loading indicator so error will be visible
-            loadingIndicator.setVisibility(View.GONE);
-
-            // Clear the adapter of previous  data
-            mAdapter.clear();
-
-            // If there is a valid list of {@link Book}s, then add to the adapter's
-            // data set. This will trigger the ListView to update.
-            if (books != null && !books.isEmpty()) {
-                mAdapter.addAll(books);
-            } else {
-                //Show the empty state with no connection error message
-                mEmptyView.setVisibility(View.VISIBLE);
-                //Update empty state text
-                mEmptyView.setText(R.string.no_connection);
+        int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+        View firstChild = mLayoutManager.findViewByPosition(firstVisible);
+        int top = firstChild == null ? 0 : firstChild.getTop();
+
+        // Build the new list in one go, the adapter updates only the added and removed rows
+        List<Book> shown = mAdapter.getBooks();
+        Set<String> shownKeys = new HashSet<>();
+        for (Book book : shown) {
+            shownKeys.add(book.getKey());
+        }
+        List<Book> pageBooks = newBooks(books, shownKeys);
+        List<Book> newBooks = new ArrayList<>(shown.size() + pageBooks.size());
+        if (append) {
+            int dropped = mPager.append(startIndex, books.size(), pageBooks.size());
+            newBooks.addAll(shown.subList(dropped, shown.size()));
+            newBooks.addAll(pageBooks);
+            firstVisible -= dropped;
+        } else {
+            int dropped = mPager.prepend(startIndex, pageBooks.size());
+            newBooks.addAll(pageBooks);
+            newBooks.addAll(shown.subList(0, shown.size() - dropped));
+            firstVisible += pageBooks.size();
+        }
+        mAdapter.setBooks(newBooks);
+
+        if (firstChild != null) {
+            mLayoutManager.scrollToPositionWithOffset(Math.max(0, firstVisible), top);
+        }
+    }
+
+    /**
+     * Returns the books of the page whose key is not in the given set, and adds their keys
+     * to it.
+     */
+    private static List<Book> newBooks(List<Book> books, Set<String> keys) {
+        List<Book> newBooks = new ArrayList<>(books.size());
+        for (Book book : books) {
+            if (keys.add(book.getKey())) {
+                newBooks.add(book);
             }
         }
-    }}
\ No newline at end of file
+        return newBooks;
+    }
+
+    /**
+     * This method runs on the main UI thread when a page of the current search has been
+     * loaded. The first page of a search replaces the books data from a previous query to
+     * Google Books API, later pages are added to the list. The adapter only updates the
+     * rows that changed.
+     */
+    @Override
+    public void onPageLoaded(int startIndex, boolean append, List<Book> books) {
+        // First, hide loading indicator so error will be visible
+        loadingIndicator.setVisibility(View.GONE);
+
+        boolean isFirstPage = mPager.pageCount() == 0;
+
+        // If there is a valid list of {@link Book}s, then add to the adapter's
+        // data set. This will trigger the RecyclerView to update.
+        if (books != null && (!books.isEmpty() || !isFirstPage)) {
+            showPage(startIndex, append, books, isFirstPage);
+            mSearchFragment.setShowingLocalResults(false);
+            if (isFirstPage) {
+                mScrollingForward = true;
+            }
+            schedulePrefetch();
+        } else if (isFirstPage && mSearchFragment.isShowingLocalResults()) {
+            // Offline, or nothing more from the server: the books found on the device stay
+            if (BuildConfig.DEBUG) {
+                Log.d(LOG_TAG, "Showing the books found on the device");
+            }
+        } else if (isFirstPage) {
+            // Clear the adapter of previous data
+            mAdapter.setBooks(new ArrayList<Book>());
+            showEmptyView();
+        }
+    }
+
+    /**
+     * Show the empty state with the error message. While the circuit breaker keeps requests
+     * away from a failing API, the message says so instead of blaming the connection.
+     */
+    private void showEmptyView() {
+        mEmptyView.setVisibility(View.VISIBLE);
+        int state = UtilsQuerry.getCircuitBreaker().getState(System.currentTimeMillis());
+        if (isConnected() && state != CircuitBreaker.CLOSED) {
+            mEmptyView.setText(R.string.service_unavailable);
+        } else {
+            mEmptyView.setText(R.string.no_connection);
+        }
+    }
+}
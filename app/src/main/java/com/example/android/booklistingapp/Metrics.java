@@ -0,0 +1,211 @@
+package com.example.android.booklistingapp;
+
+import android.support.v4.os.TraceCompat;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms of what the app does on its hot paths: the search requests,
+ * the parser, the list and the covers.
+ * <p>
+ * Metrics are created by name the first time they are used. Timed sections are recorded
+ * in microseconds with {@link #beginSection(String)} and {@link #endSection(String, long)},
+ * and show up in systrace too once {@link #setSystemTraceEnabled(boolean)} was called.
+ * Recording costs an atomic increment or a store into a ring buffer, so it stays on in
+ * release builds. All the methods are thread safe.
+ * <p>
+ * The names used by the app:
+ * <ul>
+ * <li>http.requests, http.retries, http.failures, http.rejected: counters of the search
+ * requests, the retries, the failed attempts and the requests the circuit breaker held back</li>
+ * <li>http.connect, http.first_byte, http.read: phases of a search request; the connect
+ * includes the host name lookup</li>
+ * <li>search.parse, search.items: parse time and books per response</li>
+ * <li>adapter.bind: time to bind a row of the list</li>
+ * <li>cover.memory_hit, cover.memory_miss, cover.disk_hit, cover.download: where the
+ * covers came from</li>
+ * <li>cover.decode: time to decode a cover</li>
+ * </ul>
+ */
+public final class Metrics {
+
+    // Number of recent samples the percentiles of a histogram are computed from
+    private static final int SAMPLES = 256;
+
+    private static Metrics sInstance;
+
+    private final ConcurrentMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LatencyTracker> mHistograms = new ConcurrentHashMap<>();
+
+    // True when the sections are sent to systrace, which only works on a device
+    private volatile boolean mSystemTraceEnabled;
+
+    /**
+     * Returns the metrics of the app.
+     */
+    public static synchronized Metrics getInstance() {
+        if (sInstance == null) {
+            sInstance = new Metrics();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Send the timed sections to systrace as well.
+     */
+    public void setSystemTraceEnabled(boolean enabled) {
+        mSystemTraceEnabled = enabled;
+    }
+
+    /**
+     * Returns the counter with the given name.
+     */
+    public Counter counter(String name) {
+        Counter counter = mCounters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = mCounters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the histogram of durations with the given name, in microseconds.
+     */
+    public LatencyTracker timer(String name) {
+        return histogram(name, "us");
+    }
+
+    /**
+     * Returns the histogram with the given name. The unit is only used when the histogram
+     * is created.
+     */
+    public LatencyTracker histogram(String name, String unit) {
+        LatencyTracker histogram = mHistograms.get(name);
+        if (histogram == null) {
+            LatencyTracker created = new LatencyTracker(SAMPLES, unit);
+            histogram = mHistograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Start a timed section. Sections on the same thread must be ended in the reverse
+     * order they were started, in a finally block.
+     *
+     * @return the start time to pass to {@link #endSection(String, long)}
+     */
+    public long beginSection(String name) {
+        if (mSystemTraceEnabled) {
+            TraceCompat.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * End a timed section and record its duration into the timer with the same name.
+     */
+    public void endSection(String name, long start) {
+        timer(name).record((System.nanoTime() - start) / 1000);
+        if (mSystemTraceEnabled) {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Forget every metric.
+     */
+    public void clear() {
+        mCounters.clear();
+        mHistograms.clear();
+    }
+
+    /**
+     * Returns the metrics as text, one per line, sorted by name.
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(mCounters).entrySet()) {
+            text.append(entry.getKey()).append(": ").append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, LatencyTracker> entry : new TreeMap<>(mHistograms).entrySet()) {
+            text.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the metrics as JSON, to be shared with other tools:
+     * {"counters": {name: value}, "histograms": {name: {"unit", "count", "p50", "p95", "p99", "max"}}}
+     */
+    public String export() {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        try {
+            writer.beginObject();
+            writer.name("counters").beginObject();
+            for (Map.Entry<String, Counter> entry : new TreeMap<>(mCounters).entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue().get());
+            }
+            writer.endObject();
+            writer.name("histograms").beginObject();
+            for (Map.Entry<String, LatencyTracker> entry : new TreeMap<>(mHistograms).entrySet()) {
+                LatencyTracker histogram = entry.getValue();
+                writer.name(entry.getKey()).beginObject()
+                        .name("unit").value(histogram.getUnit())
+                        .name("count").value(histogram.count())
+                        .name("p50").value(histogram.percentile(50))
+                        .name("p95").value(histogram.percentile(95))
+                        .name("p99").value(histogram.percentile(99))
+                        .name("max").value(histogram.percentile(100))
+                        .endObject();
+            }
+            writer.endObject();
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            // A StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics{counters=" + mCounters.size() + " histograms=" + mHistograms.size() + "}";
+    }
+
+    /**
+     * A number that only goes up.
+     */
+    public static final class Counter {
+        private final AtomicLong mValue = new AtomicLong();
+
+        public void increment() {
+            mValue.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            mValue.addAndGet(delta);
+        }
+
+        public long get() {
+            return mValue.get();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.android.booklistingapp;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Parses large Google Books responses that are already in memory on several threads.
+ * <p>
+ * The text is first scanned once for the bounds of the elements of the "items" array, which
+ * only looks at brackets and quotes. The items are then split into runs of neighbouring
+ * items, and every run is parsed by {@link BookStreamParser} on a worker thread, the last
+ * one on the calling thread. The books are returned in the order of the response.
+ * <p>
+ * Splitting only pays off for bulk responses of hundreds of items, from a server that
+ * returns far more books per page than the 40 of the Google Books API; the pages of a
+ * {@link CatalogBatch} are parsed whole, on the threads that fetch them. Responses with
+ * fewer than {@link #SEQUENTIAL_THRESHOLD} items, and responses the scanner does not
+ * understand, are parsed on the calling thread as a whole. The parser is thread safe.
+ */
+public class ParallelBookParser {
+
+    // Responses with fewer items are parsed on the calling thread
+    static final int SEQUENTIAL_THRESHOLD = 200;
+
+    // Shorter responses are parsed on the calling thread without scanning them first,
+    // they cannot have enough items
+    private static final int MIN_PARALLEL_LENGTH = 64 * 1024;
+
+    // Fewest items worth handing to another thread
+    private static final int MIN_ITEMS_PER_TASK = 100;
+
+    private final Executor mExecutor;
+
+    // Number of runs a response is split into at most
+    private final int mParallelism;
+
+    /**
+     * Create a new parser.
+     *
+     * @param executor    runs the runs of items, it should have parallelism - 1 threads
+     * @param parallelism is the number of runs a response is split into at most, the
+     *                    calling thread included
+     */
+    public ParallelBookParser(Executor executor, int parallelism) {
+        mExecutor = executor;
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parse the whole response and return its books, in order.
+     */
+    public List<Book> parse(String response) throws IOException {
+        char[] text = response.toCharArray();
+        return parse(text, text.length);
+    }
+
+    /**
+     * Parse the text of the buffer as a whole response and return its books, in order.
+     * Nothing must be read into the buffer while it is parsed.
+     *
+     * @throws InterruptedIOException when the thread is interrupted
+     */
+    public List<Book> parse(ResponseBuffer buffer) throws IOException {
+        return parse(buffer.array(), buffer.length());
+    }
+
+    /**
+     * Parse the first length chars of the array as a whole response and return its books,
+     * in order. The array must not change while it is parsed.
+     *
+     * @throws InterruptedIOException when the thread is interrupted
+     */
+    public List<Book> parse(final char[] text, int length) throws IOException {
+        if (mParallelism < 2 || length < MIN_PARALLEL_LENGTH) {
+            return parseSequentially(text, length);
+        }
+        int[] bounds = ItemScanner.scan(text, length);
+        int itemCount = bounds == null ? 0 : bounds.length / 2;
+        int runCount = Math.min(mParallelism, itemCount / MIN_ITEMS_PER_TASK);
+        if (itemCount < SEQUENTIAL_THRESHOLD || runCount < 2) {
+            return parseSequentially(text, length);
+        }
+
+        // Runs of neighbouring items, as even as possible
+        List<FutureTask<List<Book>>> tasks = new ArrayList<>(runCount);
+        for (int run = 0; run < runCount; run++) {
+            int first = (int) ((long) itemCount * run / runCount);
+            int last = (int) ((long) itemCount * (run + 1) / runCount) - 1;
+            final int start = bounds[first * 2];
+            final int end = bounds[last * 2 + 1];
+            tasks.add(new FutureTask<>(new Callable<List<Book>>() {
+                @Override
+                public List<Book> call() throws IOException {
+                    return parseItems(text, start, end);
+                }
+            }));
+        }
+        for (int run = 0; run < runCount - 1; run++) {
+            mExecutor.execute(tasks.get(run));
+        }
+        // The calling thread would only wait, it parses the last run itself
+        tasks.get(runCount - 1).run();
+
+        List<Book> books = new ArrayList<>(itemCount);
+        try {
+            for (FutureTask<List<Book>> task : tasks) {
+                books.addAll(task.get());
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parsing cancelled");
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return books;
+    }
+
+    private static List<Book> parseSequentially(char[] text, int length) throws IOException {
+        final List<Book> books = new ArrayList<>();
+        BookStreamParser.parse(new CharArrayReader(text, 0, length), new BookStreamParser.BookListener() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        });
+        return books;
+    }
+
+    /**
+     * Parse the items between start and end, which are separated by commas, as an array.
+     */
+    private static List<Book> parseItems(char[] text, int start, int end) throws IOException {
+        List<Book> books = new ArrayList<>();
+        JsonReader reader = new JsonReader(new ArrayReader(text, start, end));
+        reader.setLenient(true);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Parsing cancelled");
+            }
+            Book book = BookStreamParser.readItem(reader);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        reader.endArray();
+        return books;
+    }
+
+    private static void cancel(List<FutureTask<List<Book>>> tasks) {
+        for (FutureTask<List<Book>> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Finds the bounds of the elements of the top level "items" array, without parsing them.
+     */
+    static final class ItemScanner {
+
+        private ItemScanner() {
+        }
+
+        /**
+         * Return the start and end (exclusive) offset of every element of the "items" array,
+         * one pair after the other, or null if there is no such array or the text is not
+         * the kind of JSON the scanner understands.
+         */
+        static int[] scan(char[] text, int length) {
+            int position = skipWhitespace(text, 0, length);
+            if (position >= length || text[position] != '{') {
+                return null;
+            }
+            position++;
+            // Walk the names and values of the top level object
+            while (true) {
+                position = skipWhitespace(text, position, length);
+                if (position >= length || text[position] != '"') {
+                    return null;
+                }
+                int nameEnd = skipString(text, position, length);
+                if (nameEnd < 0) {
+                    return null;
+                }
+                boolean isItems = nameEnd - position == 7
+                        && new String(text, position + 1, 5).equals("items");
+                position = skipWhitespace(text, nameEnd, length);
+                if (position >= length || text[position] != ':') {
+                    return null;
+                }
+                position = skipWhitespace(text, position + 1, length);
+                if (isItems && position < length && text[position] == '[') {
+                    return scanArray(text, position, length);
+                }
+                position = skipValue(text, position, length);
+                if (position < 0) {
+                    return null;
+                }
+                position = skipWhitespace(text, position, length);
+                if (position >= length || text[position] != ',') {
+                    // The end of the object, without an "items" array
+                    return null;
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Return the bounds of the elements of the array that starts at the given position.
+         */
+        private static int[] scanArray(char[] text, int position, int length) {
+            int[] bounds = new int[64];
+            int count = 0;
+            position = skipWhitespace(text, position + 1, length);
+            if (position < length && text[position] == ']') {
+                return new int[0];
+            }
+            while (true) {
+                int end = skipValue(text, position, length);
+                if (end < 0) {
+                    return null;
+                }
+                if (count + 2 > bounds.length) {
+                    int[] grown = new int[bounds.length * 2];
+                    System.arraycopy(bounds, 0, grown, 0, count);
+                    bounds = grown;
+                }
+                bounds[count++] = position;
+                bounds[count++] = end;
+                position = skipWhitespace(text, end, length);
+                if (position >= length) {
+                    return null;
+                }
+                if (text[position] == ']') {
+                    int[] result = new int[count];
+                    System.arraycopy(bounds, 0, result, 0, count);
+                    return result;
+                }
+                if (text[position] != ',') {
+                    return null;
+                }
+                position = skipWhitespace(text, position + 1, length);
+            }
+        }
+
+        /**
+         * Return the position after the value that starts at the given position, or -1.
+         */
+        private static int skipValue(char[] text, int position, int length) {
+            if (position >= length) {
+                return -1;
+            }
+            char c = text[position];
+            if (c == '"') {
+                return skipString(text, position, length);
+            }
+            if (c != '{' && c != '[') {
+                // A number, true, false or null
+                while (position < length && text[position] != ',' && text[position] != '}'
+                        && text[position] != ']' && !isWhitespace(text[position])) {
+                    position++;
+                }
+                return position;
+            }
+            int depth = 0;
+            while (position < length) {
+                c = text[position];
+                if (c == '"') {
+                    position = skipString(text, position, length);
+                    if (position < 0) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return position + 1;
+                    }
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        /**
+         * Return the position after the string that starts at the given quote, or -1.
+         */
+        private static int skipString(char[] text, int position, int length) {
+            position++;
+            while (position < length) {
+                char c = text[position];
+                if (c == '\\') {
+                    position += 2;
+                } else if (c == '"') {
+                    return position + 1;
+                } else {
+                    position++;
+                }
+            }
+            return -1;
+        }
+
+        private static int skipWhitespace(char[] text, int position, int length) {
+            while (position < length && isWhitespace(text[position])) {
+                position++;
+            }
+            return position;
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+        }
+    }
+
+    /**
+     * Reads a range of the text with square brackets around it, so a run of items
+     * reads as an array.
+     */
+    private static final class ArrayReader extends Reader {
+        private final char[] mText;
+        private int mPosition;
+        private final int mEnd;
+
+        // True once the opening and the closing bracket were read
+        private boolean mOpened;
+        private boolean mClosed;
+
+        ArrayReader(char[] text, int start, int end) {
+            mText = text;
+            mPosition = start;
+            mEnd = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!mOpened) {
+                mOpened = true;
+                buffer[offset] = '[';
+                return 1;
+            }
+            if (mPosition == mEnd) {
+                if (mClosed) {
+                    return -1;
+                }
+                mClosed = true;
+                buffer[offset] = ']';
+                return 1;
+            }
+            int read = Math.min(count, mEnd - mPosition);
+            System.arraycopy(mText, mPosition, buffer, offset, read);
+            mPosition += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
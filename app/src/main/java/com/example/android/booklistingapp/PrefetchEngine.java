@@ -0,0 +1,189 @@
+package com.example.android.booklistingapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads what the user is likely to need next while the UI thread has nothing to do.
+ * <p>
+ * When the UI thread goes idle after a page was shown or a scroll stopped, the next result
+ * page is loaded from the current {@link BookSource} of the {@link SearchFragment}, which
+ * keeps it in the {@link QueryCache}, and
+ * the covers of the rows just past the visible ones, in the direction of the scroll, are
+ * loaded into the {@link BitmapCache}. Both run at {@link TaskScheduler#PRIORITY_OFFSCREEN},
+ * behind everything the user is waiting for.
+ * <p>
+ * Nothing is prefetched on a metered network, and the bytes prefetched are limited by a
+ * {@link BandwidthBudget} shared by the whole app. The budget is charged with the bytes that
+ * were actually downloaded, once the download is done, so pages and covers that come from
+ * the caches cost nothing. All the methods must be called on the UI thread.
+ */
+public class PrefetchEngine implements MessageQueue.IdleHandler {
+
+    // Number of covers loaded ahead of the visible rows
+    private static final int COVERS_AHEAD = 6;
+
+    // At most 512 KB in a burst, and 8 KB per second after that
+    private static final BandwidthBudget sBudget =
+            new BandwidthBudget(512 * 1024, 8 * 1024, SystemClock.elapsedRealtime());
+
+    private final ConnectivityManager mConnectivityManager;
+
+    private final BookAdapter mAdapter;
+
+    // Holds the source the next pages are loaded from, which can change at any time
+    private final SearchFragment mSearchFragment;
+
+    // Tells which rows are visible once the UI thread is idle
+    private final LinearLayoutManager mLayoutManager;
+
+    // Start index of the pages of mPrefetchedSearch already prefetched, so they are not
+    // asked for twice. Cleared when a new search starts.
+    private final Set<Integer> mPrefetchedPages = new HashSet<>();
+
+    // Search the prefetched pages belong to
+    private BookPager mPrefetchedSearch;
+
+    // Search to prefetch for, null when nothing is scheduled
+    private BookPager mPager;
+
+    // True when the user scrolls towards the end of the list
+    private boolean mForward = true;
+
+    // True while the engine waits for the UI thread to go idle
+    private boolean mScheduled;
+
+    /**
+     * Create a new engine.
+     *
+     * @param context        is used to check the network
+     * @param searchFragment holds the source the pages of the search are loaded from
+     * @param adapter        is the adapter of the list, its cover loader loads the covers
+     * @param layoutManager  is the layout manager of the list
+     */
+    public PrefetchEngine(Context context, SearchFragment searchFragment, BookAdapter adapter,
+                          LinearLayoutManager layoutManager) {
+        mConnectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        mSearchFragment = searchFragment;
+        mAdapter = adapter;
+        mLayoutManager = layoutManager;
+    }
+
+    /**
+     * Prefetch for the current search once the UI thread is idle, when the list has been
+     * laid out and the visible rows are known.
+     *
+     * @param pager   is the current search
+     * @param forward is true when the user scrolls towards the end of the list
+     */
+    public void schedule(BookPager pager, boolean forward) {
+        mPager = pager;
+        mForward = forward;
+        if (!mScheduled) {
+            mScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * Forget the scheduled prefetch, e.g. when the activity goes away.
+     */
+    public void cancel() {
+        if (mScheduled) {
+            Looper.myQueue().removeIdleHandler(this);
+            mScheduled = false;
+        }
+        mPager = null;
+    }
+
+    /**
+     * Called when the UI thread has no more messages to handle.
+     */
+    @Override
+    public boolean queueIdle() {
+        mScheduled = false;
+        if (mPager != null && canPrefetch()) {
+            prefetchNextPage();
+            prefetchCovers();
+        }
+        mPager = null;
+        // Run once, the next page or scroll schedules it again
+        return false;
+    }
+
+    /**
+     * Returns true if there is a network connection that is not metered.
+     */
+    private boolean canPrefetch() {
+        NetworkInfo activeNetworkInfo = mConnectivityManager.getActiveNetworkInfo();
+        return activeNetworkInfo != null && activeNetworkInfo.isConnected()
+                && !ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager);
+    }
+
+    /**
+     * Load the page after the last page of the list into the cache, so it shows right
+     * away when the user gets there.
+     */
+    private void prefetchNextPage() {
+        if (!mPager.hasNext() || mPager.isLoading() || mPager.pageCount() == 0) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        final String query = mPager.getQuery();
+        final int startIndex = mPager.nextStartIndex();
+        if (mPrefetchedSearch != mPager) {
+            mPrefetchedSearch = mPager;
+            mPrefetchedPages.clear();
+        }
+        if (!sBudget.hasBudget(now) || !mPrefetchedPages.add(startIndex)) {
+            return;
+        }
+        // The source the search uses now, not the one the engine started with
+        final BookSource bookSource = mSearchFragment.getBookSource();
+        TaskScheduler.getInstance().searchExecutor(TaskScheduler.PRIORITY_OFFSCREEN).execute(new Runnable() {
+            @Override
+            public void run() {
+                // A source with a cache keeps the page, a fresh cached page is returned
+                // without going to the network
+                long bytesBefore = UtilsQuerry.getBytesReceived();
+                bookSource.fetchPage(query, startIndex, BookPager.PAGE_SIZE, true);
+                long bytes = UtilsQuerry.getBytesReceived() - bytesBefore;
+                sBudget.consume(bytes, SystemClock.elapsedRealtime());
+            }
+        });
+    }
+
+    /**
+     * Load the covers of the rows just past the visible ones, in the direction of the scroll.
+     */
+    private void prefetchCovers() {
+        int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+        int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+        List<Book> books = mAdapter.getBooks();
+        int start = mForward ? lastVisible + 1 : firstVisible - COVERS_AHEAD;
+        int end = Math.min(start + COVERS_AHEAD, books.size());
+        CoverLoader coverLoader = mAdapter.getCoverLoader();
+        long now = SystemClock.elapsedRealtime();
+        for (int position = Math.max(0, start); position < end; position++) {
+            if (!sBudget.hasBudget(now)) {
+                return;
+            }
+            coverLoader.prefetch(books.get(position).getmThumbnailLink(), sBudget);
+        }
+    }
+}
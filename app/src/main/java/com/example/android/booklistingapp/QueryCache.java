@@ -0,0 +1,249 @@
+package com.example.android.booklistingapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Persistent cache of parsed search results, keyed by the server, the normalized query and
+ * the page.
+ * <p>
+ * An entry is fresh for {@link #TIME_TO_LIVE} milliseconds after it was stored. A stale entry
+ * is revalidated with the ETag or Last-Modified value the server sent with it, and it is still
+ * served as it is when there is no network connection.
+ */
+public class QueryCache {
+    private static final String LOG_TAG = QueryCache.class.getSimpleName();
+
+    // How long an entry is used without asking the server, in milliseconds
+    public static final long TIME_TO_LIVE = 10 * 60 * 1000;
+
+    // Size of the cache on disk, in bytes
+    private static final long DISK_CACHE_SIZE = 2 * 1024 * 1024;
+
+    // Name of the directory inside the app cache directory
+    private static final String DISK_CACHE_DIRECTORY = "queries";
+
+    // Version of the file format, entries of other versions are ignored
+    private static final int FORMAT_VERSION = 3;
+
+    private static QueryCache sInstance;
+
+    private final DiskCache mDiskCache;
+
+    /**
+     * Return the cache shared by the whole app.
+     */
+    public static synchronized QueryCache getInstance(Context context) {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIRECTORY);
+            sInstance = new QueryCache(new DiskCache(directory, DISK_CACHE_SIZE));
+        }
+        return sInstance;
+    }
+
+    public QueryCache(DiskCache diskCache) {
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * Return the cache key for the given search word and page of a server. Several servers
+     * can share the cache, the same search on each of them has a key of its own.
+     *
+     * @param baseUrl    is the URL the search word is added to, like {@link BookQuery#BOOK_URL_BASE}
+     * @param query      is the search word as typed by the user
+     * @param startIndex is the index of the first result of the page
+     */
+    public static String key(String baseUrl, String query, int startIndex) {
+        return baseUrl + query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US) + "#" + startIndex;
+    }
+
+    /**
+     * Return the entry stored for the key, fresh or stale, or null if there is none.
+     */
+    public Entry get(String key) {
+        byte[] data = mDiskCache.get(key);
+        if (data == null) {
+            return null;
+        }
+        try {
+            return Entry.read(data);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the cached results of " + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Return the books of all the cached entries, fresh or stale. Used to fill the
+     * {@link BookIndex} with the results of earlier runs of the app.
+     */
+    public List<Book> getAllBooks() {
+        List<Book> books = new ArrayList<>();
+        for (byte[] data : mDiskCache.getAll()) {
+            try {
+                books.addAll(Entry.read(data).getBooks());
+            } catch (IOException e) {
+                // Written by an older version of the app
+                Log.d(LOG_TAG, "Skipping an unreadable cache entry", e);
+            }
+        }
+        return books;
+    }
+
+    public void put(String key, Entry entry) {
+        try {
+            mDiskCache.put(key, entry.write());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem caching the results of " + key, e);
+        }
+    }
+
+    /**
+     * Cached results of one query and page, with the validators the server sent for them.
+     */
+    public static class Entry {
+        private final List<Book> mBooks;
+        private final String mETag;
+        private final String mLastModified;
+        private final long mStoredAt;
+
+        public Entry(List<Book> books, String eTag, String lastModified, long storedAt) {
+            mBooks = books;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mStoredAt = storedAt;
+        }
+
+        public List<Book> getBooks() {
+            return mBooks;
+        }
+
+        public String getETag() {
+            return mETag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public long getStoredAt() {
+            return mStoredAt;
+        }
+
+        public boolean isFresh(long now) {
+            return now - mStoredAt < TIME_TO_LIVE;
+        }
+
+        /**
+         * Returns true if the server sent something the entry can be revalidated with.
+         */
+        public boolean hasValidators() {
+            return mETag != null || mLastModified != null;
+        }
+
+        /**
+         * Return a copy of the entry that is fresh again, after the server confirmed it.
+         */
+        public Entry revalidated(long now) {
+            return new Entry(mBooks, mETag, mLastModified, now);
+        }
+
+        byte[] write() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(mStoredAt);
+            writeString(out, mETag);
+            writeString(out, mLastModified);
+            out.writeInt(mBooks.size());
+            for (Book book : mBooks) {
+                writeString(out, book.getId());
+                writeString(out, book.getTitle());
+                writeStrings(out, book.getAuthors());
+                writeString(out, book.getPublisher());
+                writeString(out, book.getUrl());
+                writeString(out, book.getPublishedDate());
+                writeStrings(out, book.getCategoryList());
+                writeString(out, book.getDescription());
+                writeString(out, book.getmThumbnailLink());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        static Entry read(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format version");
+            }
+            long storedAt = in.readLong();
+            String eTag = readString(in);
+            String lastModified = readString(in);
+            int count = in.readInt();
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = readString(in);
+                String title = readString(in);
+                String[] authors = readStrings(in);
+                String publisher = readString(in);
+                String url = readString(in);
+                String publishedDate = readString(in);
+                String[] categories = readStrings(in);
+                String description = readString(in);
+                String thumbnailLink = readString(in);
+                books.add(new Book(id, title, authors, publisher, url, publishedDate, categories,
+                        description, thumbnailLink));
+            }
+            return new Entry(books, eTag, lastModified, storedAt);
+        }
+
+        /**
+         * Write a nullable string as its length in UTF-8 bytes followed by the bytes.
+         * Unlike writeUTF() this has no 64 KB limit, which long descriptions could hit.
+         */
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+
+        private static String[] readStrings(DataInputStream in) throws IOException {
+            String[] values = new String[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString(in);
+            }
+            return values;
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.booklistingapp;
+
+/**
+ * Settings of the search requests made by {@link UtilsQuerry}.
+ * Apply them with {@link UtilsQuerry#setRequestConfig(RequestConfig)}.
+ */
+public final class RequestConfig {
+
+    // Default timeouts, in milliseconds
+    private static final int DEFAULT_CONNECT_TIMEOUT = 15000;
+    private static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+    private final long mDebugDelay;
+
+    /**
+     * Create a new request configuration.
+     *
+     * @param connectTimeout is the connect timeout, in milliseconds
+     * @param readTimeout    is the read timeout, in milliseconds
+     * @param debugDelay     is an artificial delay before every request, in milliseconds,
+     *                       to show the loading indicator in demos. Ignored in release builds.
+     */
+    public RequestConfig(int connectTimeout, int readTimeout, long debugDelay) {
+        mConnectTimeout = connectTimeout;
+        mReadTimeout = readTimeout;
+        mDebugDelay = debugDelay;
+    }
+
+    /**
+     * Returns the configuration used when nothing else was set.
+     */
+    public static RequestConfig defaults() {
+        return new RequestConfig(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, 0);
+    }
+
+    public int getConnectTimeout() {
+        return mConnectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return mReadTimeout;
+    }
+
+    /**
+     * Returns the artificial delay before every request, in milliseconds.
+     * It is always 0 in release builds.
+     */
+    public long getDebugDelay() {
+        return BuildConfig.DEBUG ? mDebugDelay : 0;
+    }
+}
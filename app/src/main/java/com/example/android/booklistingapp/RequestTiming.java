@@ -0,0 +1,86 @@
+package com.example.android.booklistingapp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Time spent in every phase of one search request, in nanoseconds, and the size of its
+ * response body.
+ * <p>
+ * The streaming parser reads the body while it parses it, so the body read time is
+ * measured inside the reads of the response stream (see {@link #wrap(InputStream)})
+ * and the parse time is whatever is left. The size is counted by the
+ * {@link HttpClient.Response}, before the body is unpacked.
+ */
+public class RequestTiming {
+
+    // Host name lookup, TCP connect and TLS handshake, none of them for a pooled connection
+    long connectNanos;
+
+    // From sending the request to the status line of the response
+    long firstByteNanos;
+
+    // Reading the response body
+    long readNanos;
+
+    // Parsing the response body into books
+    long parseNanos;
+
+    // Bytes of the response body read from the connection, compressed as they were sent
+    long bodyBytes;
+
+    public long getConnectMillis() {
+        return connectNanos / 1000000;
+    }
+
+    public long getFirstByteMillis() {
+        return firstByteNanos / 1000000;
+    }
+
+    public long getReadMillis() {
+        return readNanos / 1000000;
+    }
+
+    public long getParseMillis() {
+        return parseNanos / 1000000;
+    }
+
+    public long getTotalMillis() {
+        return (connectNanos + firstByteNanos + readNanos + parseNanos) / 1000000;
+    }
+
+    /**
+     * Return a stream that adds the time spent reading from it to the body read time.
+     */
+    InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return super.read();
+                } finally {
+                    readNanos += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return super.read(buffer, offset, count);
+                } finally {
+                    readNanos += System.nanoTime() - start;
+                }
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "connect=" + getConnectMillis()
+                + "ms ttfb=" + getFirstByteMillis() + "ms read=" + getReadMillis()
+                + "ms parse=" + getParseMillis() + "ms total=" + getTotalMillis() + "ms";
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.android.booklistingapp;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Holds a whole response body, decoded from UTF-8 as it is read.
+ * <p>
+ * The bytes are read in small chunks and decoded into a char array sized from the
+ * Content-Length of the response, so only the text of the body is held, not its bytes
+ * as well. The text is handed out as a {@link Reader} or a
+ * {@link CharSequence} over that array, without copying it into a String. Unlike reading the
+ * body line by line, the text is kept exactly as it was sent, with its line breaks.
+ * <p>
+ * A buffer can be used for one response after the other; its char array is kept for the
+ * next response unless it grew past {@link #MAX_RETAINED_SIZE}. It is not thread safe.
+ */
+public final class ResponseBuffer {
+
+    // Arrays larger than this are dropped after use instead of kept for the next response
+    static final int MAX_RETAINED_SIZE = 256 * 1024;
+
+    // Size of the char array when the length of the body is not known
+    private static final int DEFAULT_SIZE = 16 * 1024;
+
+    // Number of bytes read from the stream at a time
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final CharsetDecoder mDecoder = UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // Bytes read but not decoded yet, at most a chunk and the start of a split character
+    private final ByteBuffer mBytes = ByteBuffer.allocate(CHUNK_SIZE);
+    private int mByteCount;
+
+    private char[] mChars = new char[0];
+    private int mCharCount;
+
+    /**
+     * Read the whole stream, replacing the text of the previous response. The stream is
+     * not closed.
+     *
+     * @param in            is the response body
+     * @param contentLength is the length of the body in bytes, or -1 if it is not known,
+     *                      e.g. when the body is compressed. A wrong value only costs a
+     *                      larger array or a copy.
+     */
+    public void read(InputStream in, int contentLength) throws IOException {
+        mByteCount = 0;
+        mCharCount = 0;
+        // UTF-8 never gives more chars than bytes, so an array as long as the body is
+        // always large enough
+        int expected = contentLength >= 0 ? contentLength : DEFAULT_SIZE;
+        if (mChars.length < expected) {
+            mChars = new char[expected];
+        }
+        mDecoder.reset();
+        mBytes.clear();
+        byte[] bytes = mBytes.array();
+        int read;
+        while ((read = in.read(bytes, mBytes.position(), mBytes.remaining())) != -1) {
+            mByteCount += read;
+            mBytes.position(mBytes.position() + read);
+            mBytes.flip();
+            decode(false);
+            // Keeps the start of a character split across two reads
+            mBytes.compact();
+        }
+        mBytes.flip();
+        decode(true);
+    }
+
+    /**
+     * Returns the number of chars of the text.
+     */
+    public int length() {
+        return mCharCount;
+    }
+
+    /**
+     * Returns the number of bytes of the body.
+     */
+    public int byteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * Returns a Reader over the text. It stays valid until the next read().
+     */
+    public Reader reader() {
+        return new CharArrayReader(mChars, 0, mCharCount);
+    }
+
+    /**
+     * Returns the text, without copying it. It stays valid until the next read().
+     */
+    public CharSequence chars() {
+        return CharBuffer.wrap(mChars, 0, mCharCount);
+    }
+
+    /**
+     * Returns the array that holds the text in its first {@link #length()} chars, for the
+     * parsers that split the text, e.g. {@link ParallelBookParser}. It stays valid until the
+     * next read().
+     */
+    char[] array() {
+        return mChars;
+    }
+
+    /**
+     * Returns a copy of the text, for the APIs that only take a String.
+     */
+    @Override
+    public String toString() {
+        return new String(mChars, 0, mCharCount);
+    }
+
+    /**
+     * Forget the text. An array that grew too large for a usual response is dropped.
+     */
+    public void clear() {
+        mByteCount = 0;
+        mCharCount = 0;
+        if (mChars.length > MAX_RETAINED_SIZE) {
+            mChars = new char[0];
+        }
+    }
+
+    /**
+     * Decode the bytes read so far after the text, growing the char array when the
+     * length of the body was not known or was wrong.
+     *
+     * @param endOfInput is true once the stream is read to its end
+     */
+    private void decode(boolean endOfInput) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(mChars, mCharCount, mChars.length - mCharCount);
+        while (true) {
+            CoderResult result = mDecoder.decode(mBytes, chars, endOfInput);
+            if (result.isUnderflow() && endOfInput) {
+                result = mDecoder.flush(chars);
+            }
+            mCharCount = chars.position();
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (!result.isOverflow()) {
+                result.throwException();
+            }
+            char[] grown = new char[Math.max(mChars.length * 2, CHUNK_SIZE)];
+            System.arraycopy(mChars, 0, grown, 0, mCharCount);
+            mChars = grown;
+            chars = CharBuffer.wrap(mChars, mCharCount, mChars.length - mCharCount);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.booklistingapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether a failed search request is sent again, and how long to wait before.
+ * <p>
+ * Only responses that tell the client to come back later are retried: 429 (too many
+ * requests) and the 5xx server errors. The waits grow exponentially from the base delay and
+ * are picked at random below that limit ("full jitter"), so clients that failed together do
+ * not all come back at the same moment. A Retry-After header sent by the server is waited
+ * for as it is, but when it asks for more than the longest delay the request is not retried
+ * at all, so a search never hangs for long.
+ */
+public final class RetryPolicy {
+
+    // Defaults: 3 attempts, waits of up to 0.5 s and then 1 s, never more than 4 s
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_BASE_DELAY = 500;
+    private static final long DEFAULT_MAX_DELAY = 4000;
+
+    private final int mMaxAttempts;
+    private final long mBaseDelay;
+    private final long mMaxDelay;
+    private final Random mRandom;
+
+    /**
+     * Create a new retry policy.
+     *
+     * @param maxAttempts is the number of attempts, the first one included
+     * @param baseDelay   is the longest wait before the first retry, in milliseconds
+     * @param maxDelay    is the longest wait before any retry, in milliseconds
+     * @param random      picks the waits
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelay = baseDelay;
+        mMaxDelay = maxDelay;
+        mRandom = random;
+    }
+
+    /**
+     * Returns the policy used when nothing else was set.
+     */
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, new Random());
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Returns true if a response with the given code may succeed when sent again later.
+     */
+    public static boolean isRetryable(int responseCode) {
+        return responseCode == 429 || (responseCode >= 500 && responseCode < 600);
+    }
+
+    /**
+     * Return how long to wait before the next attempt, or -1 if there should be none.
+     *
+     * @param attempt    is the number of the attempt that failed, starting at 1
+     * @param retryAfter is the wait asked for by the server, in milliseconds, or -1
+     */
+    public long delayBeforeRetry(int attempt, long retryAfter) {
+        if (attempt >= mMaxAttempts) {
+            return -1;
+        }
+        if (retryAfter >= 0) {
+            return retryAfter <= mMaxDelay ? retryAfter : -1;
+        }
+        // Double the limit with every attempt, without overflowing
+        long limit = mBaseDelay << Math.min(attempt - 1, 20);
+        limit = Math.min(limit, mMaxDelay);
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * limit);
+        }
+    }
+
+    /**
+     * Return the wait asked for by a Retry-After header, in milliseconds, or -1 if the
+     * header is missing or not understood. The header holds either a number of seconds
+     * or an HTTP date.
+     *
+     * @param value is the value of the header, or null
+     * @param now   is the current time, in milliseconds since the epoch
+     */
+    public static long parseRetryAfter(String value, long now) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds >= 0 ? seconds * 1000 : -1;
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try a date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(value);
+            return Math.max(0, date.getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.android.booklistingapp;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fragment without a view that holds the current search across configuration changes.
+ * <p>
+ * The fragment is retained, so when the activity is recreated, e.g. after a change of the
+ * language or the window size, the new activity finds the same {@link BookPager}, the books
+ * that were shown and the pages that are still loading. Nothing is downloaded or parsed
+ * again. Pages that finish loading while no activity is attached are kept and delivered to
+ * the next activity. All the methods must be called on the UI thread.
+ */
+public class SearchFragment extends Fragment {
+
+    // Tag the fragment is added with
+    public static final String TAG = "search";
+
+    /**
+     * Receives the pages loaded by the fragment. It is implemented by the activity.
+     */
+    public interface Callbacks {
+        /**
+         * Called when a page of the current search finished loading.
+         *
+         * @param startIndex is the index of the first result of the page
+         * @param append     is true if the page goes after the books in the list
+         * @param books      is the books of the page, or null if the page could not be loaded
+         */
+        void onPageLoaded(int startIndex, boolean append, List<Book> books);
+    }
+
+    // Activity the pages are delivered to, null while there is none
+    private Callbacks mCallbacks;
+
+    // Used to reach the caches, it outlives the activities
+    private Context mAppContext;
+
+    // Where the pages come from, the Google Books API unless another source was set
+    private BookSource mBookSource;
+
+    // Pages of the current search, null before the first search
+    private BookPager mPager;
+
+    // Books shown in the list when the last activity went away
+    private List<Book> mBooks = new ArrayList<>();
+
+    // True while the list shows the books found on the device for the current search,
+    // before its first page arrives
+    private boolean mShowingLocalResults;
+
+    // Tasks of the current search that did not finish yet
+    private final List<BookListAsyncTask> mRunningTasks = new ArrayList<>();
+
+    // Pages that finished loading while no activity was attached, oldest first
+    private final List<BookListAsyncTask> mUndelivered = new ArrayList<>();
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Keep the fragment, and the tasks it started, when the activity is recreated
+        setRetainInstance(true);
+    }
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        mAppContext = context.getApplicationContext();
+    }
+
+    /**
+     * Deliver the pages that finished loading without an activity, now that the new activity
+     * has set up its views.
+     */
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        mCallbacks = (Callbacks) getActivity();
+        List<BookListAsyncTask> undelivered = new ArrayList<>(mUndelivered);
+        mUndelivered.clear();
+        for (BookListAsyncTask task : undelivered) {
+            deliver(task);
+        }
+    }
+
+    @Override
+    public void onDetach() {
+        mCallbacks = null;
+        super.onDetach();
+    }
+
+    /**
+     * The activity is finishing for good, the pages that are still loading are not needed.
+     */
+    @Override
+    public void onDestroy() {
+        cancelRunningTasks();
+        super.onDestroy();
+    }
+
+    /**
+     * Returns the source the pages are loaded from.
+     */
+    public BookSource getBookSource() {
+        if (mBookSource == null) {
+            mBookSource = HttpBookSource.getInstance(mAppContext);
+        }
+        return mBookSource;
+    }
+
+    /**
+     * Load the next pages from another source, e.g. a mock server. The pages that are
+     * already loading still come from the old source.
+     */
+    public void setBookSource(BookSource bookSource) {
+        mBookSource = bookSource;
+    }
+
+    public BookPager getPager() {
+        return mPager;
+    }
+
+    /**
+     * Returns the books that were shown in the list. The list must not be changed.
+     */
+    public List<Book> getBooks() {
+        return mBooks;
+    }
+
+    /**
+     * Remember the books shown in the list, for the next activity.
+     */
+    public void setBooks(List<Book> books) {
+        mBooks = books;
+    }
+
+    public boolean isShowingLocalResults() {
+        return mShowingLocalResults;
+    }
+
+    public void setShowingLocalResults(boolean showingLocalResults) {
+        mShowingLocalResults = showingLocalResults;
+    }
+
+    /**
+     * Start a new search. The pages of the previous search that are still loading are
+     * cancelled, and their results will never be delivered.
+     */
+    public BookPager startSearch(String searchWord) {
+        cancelRunningTasks();
+        mPager = new BookPager(searchWord);
+        return mPager;
+    }
+
+    /**
+     * Cancel the page loads of the current search. This interrupts their threads,
+     * which stops the request and the parser as soon as possible.
+     */
+    public void cancelRunningTasks() {
+        for (BookListAsyncTask task : mRunningTasks) {
+            task.cancel(true);
+        }
+        mRunningTasks.clear();
+        mUndelivered.clear();
+    }
+
+    /**
+     * Start loading a page of the current search.
+     *
+     * @param startIndex  is the index of the first result of the page
+     * @param append      is true to add the page after the books in the list,
+     *                    false to add it before them
+     * @param isConnected is false when only cached results can be used
+     */
+    public void loadPage(int startIndex, boolean append, boolean isConnected) {
+        mPager.setLoading(true);
+        // Start the AsyncTask to fetch the books data, from the cache when possible
+        BookListAsyncTask task = new BookListAsyncTask(getBookSource(), mPager, startIndex, append,
+                isConnected);
+        mRunningTasks.add(task);
+        // Searches have their own threads, so cover downloads never hold them back
+        task.executeOnExecutor(TaskScheduler.getInstance().searchExecutor());
+    }
+
+    private void deliver(BookListAsyncTask task) {
+        if (mCallbacks == null) {
+            mUndelivered.add(task);
+            return;
+        }
+        mRunningTasks.remove(task);
+        // The pager stays busy until the page is in the list
+        mPager.setLoading(false);
+        mCallbacks.onPageLoaded(task.mStartIndex, task.mAppend, task.mResult);
+    }
+
+    /**
+     * {@link AsyncTask} to perform the network request on a background thread, and
+     * then hand the list of books in the response to the activity.
+     * <p>
+     * The doInBackground() runs on a background thread, so it can run long running code
+     * (like network activity), without interfering with the responsiveness of the app.
+     * The onPostExecute() is passed the result of the doInBackground() method, but runs on the
+     * UI thread. The task belongs to the retained fragment, not to an activity, so it keeps
+     * running when the activity is recreated.
+     */
+    private class BookListAsyncTask extends AsyncTask<Void, Void, List<Book>> {
+
+        // Source the page is loaded from
+        private final BookSource mSource;
+
+        // Search the page belongs to
+        private final BookPager mTaskPager;
+
+        // Index of the first result of the page
+        private final int mStartIndex;
+
+        // True if the page goes after the books in the list, false if before them
+        private final boolean mAppend;
+
+        // False when only cached results can be used
+        private final boolean mIsConnected;
+
+        // Books of the page, set when the task is done
+        private List<Book> mResult;
+
+        BookListAsyncTask(BookSource source, BookPager pager, int startIndex, boolean append,
+                          boolean isConnected) {
+            mSource = source;
+            mTaskPager = pager;
+            mStartIndex = startIndex;
+            mAppend = append;
+            mIsConnected = isConnected;
+        }
+
+        /**
+         * This method runs on a background thread and performs the network request.
+         * We should not update the UI from a background thread, so we return a list of
+         * {@link Book}s as the result.
+         *
+         * @return {@link Book}s as the result
+         */
+        @Override
+        protected List<Book> doInBackground(Void... params) {
+            List<Book> books = mSource.fetchPage(mTaskPager.getQuery(), mStartIndex,
+                    BookPager.PAGE_SIZE, mIsConnected);
+            if (books != null) {
+                // Format the text of the rows on this thread, binding them on the UI thread
+                // then only sets it
+                for (Book book : books) {
+                    book.prepareDisplayText();
+                }
+            }
+            return books;
+        }
+
+        /**
+         * This method runs on the main UI thread after the background work has
+         * completed. The page is handed to the activity, or kept until there is one.
+         */
+        @Override
+        protected void onPostExecute(List<Book> books) {
+            // Results of a search the user has already replaced are dropped
+            if (mTaskPager != mPager) {
+                mRunningTasks.remove(this);
+                return;
+            }
+            mResult = books;
+            deliver(this);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.booklistingapp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes concurrent loads of the same key share one load.
+ * <p>
+ * The first thread that asks for a key runs the load, and the threads that ask for the same
+ * key while it runs wait for it and get the same result. A key is only shared while it is
+ * in flight, nothing is cached afterwards.
+ * <p>
+ * When the thread that runs the load is interrupted, e.g. because its search was cancelled,
+ * its result may be cut short. The waiting threads then do not take it, and one of them
+ * runs the load again. All the methods are thread safe.
+ *
+ * @param <V> is the type of the results
+ */
+public class SingleFlight<V> {
+
+    /**
+     * A load that can be shared.
+     */
+    public interface Loader<V> {
+        V load();
+    }
+
+    // Loads in flight, by key
+    private final Map<String, Call<V>> mCalls = new HashMap<>();
+
+    // Number of loads that were run, and of the requests that shared a load instead
+    private final AtomicLong mLoadCount = new AtomicLong();
+    private final AtomicLong mSharedCount = new AtomicLong();
+
+    /**
+     * Return the result of the load for the key, joining the load already in flight for it
+     * if there is one.
+     *
+     * @throws InterruptedException if the thread is interrupted while it waits for another
+     *                              thread's load
+     */
+    public V execute(String key, Loader<V> loader) throws InterruptedException {
+        while (true) {
+            Call<V> call;
+            boolean isLeader = false;
+            synchronized (mCalls) {
+                call = mCalls.get(key);
+                if (call == null) {
+                    call = new Call<>();
+                    mCalls.put(key, call);
+                    isLeader = true;
+                }
+            }
+
+            if (isLeader) {
+                return run(key, call, loader);
+            }
+
+            call.mDone.await();
+            if (call.mError != null) {
+                throw call.mError;
+            }
+            if (!call.mAbandoned) {
+                mSharedCount.incrementAndGet();
+                return call.mResult;
+            }
+            // The load was cancelled on the way, try again
+        }
+    }
+
+    /**
+     * Returns the number of loads that were run.
+     */
+    public long loadCount() {
+        return mLoadCount.get();
+    }
+
+    /**
+     * Returns the number of requests that got the result of another thread's load.
+     */
+    public long sharedCount() {
+        return mSharedCount.get();
+    }
+
+    private V run(String key, Call<V> call, Loader<V> loader) {
+        mLoadCount.incrementAndGet();
+        try {
+            call.mResult = loader.load();
+            call.mAbandoned = Thread.currentThread().isInterrupted();
+            return call.mResult;
+        } catch (RuntimeException e) {
+            call.mError = e;
+            throw e;
+        } catch (Error e) {
+            // Let the waiting threads try for themselves
+            call.mAbandoned = true;
+            throw e;
+        } finally {
+            synchronized (mCalls) {
+                mCalls.remove(key);
+            }
+            call.mDone.countDown();
+        }
+    }
+
+    /**
+     * A load in flight. The fields are written before the latch is released, and read
+     * after it, so they need no locking.
+     */
+    private static class Call<V> {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private V mResult;
+        private RuntimeException mError;
+        private boolean mAbandoned;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.booklistingapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one instance of strings that repeat across many books, like publishers,
+ * categories and authors, so thousands of cached or paged books don't each hold a copy.
+ * <p>
+ * Unlike {@link String#intern()} the pool is bounded: when it is full it is emptied and
+ * starts over, which only costs some sharing.
+ */
+public final class StringPool {
+
+    // Number of distinct strings kept before the pool starts over
+    private static final int MAX_SIZE = 4096;
+
+    private static final ConcurrentHashMap<String, String> sPool = new ConcurrentHashMap<>();
+
+    //An empty private constructor makes sure that the class is not going to be initialised.
+    private StringPool() {
+    }
+
+    /**
+     * Return the pooled instance equal to the given string, or null for null.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = sPool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (sPool.size() >= MAX_SIZE) {
+            sPool.clear();
+        }
+        pooled = sPool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Return a copy of the array with every value pooled.
+     */
+    public static String[] intern(String[] values) {
+        String[] pooled = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            pooled[i] = intern(values[i]);
+        }
+        return pooled;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.android.booklistingapp;
+
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the background work of the app on two separate, bounded thread pools.
+ * <p>
+ * Searches and cover images never wait for each other: a burst of cover downloads only fills
+ * the image queue. Search threads run at the default thread priority and image threads at
+ * background priority, so the CPU goes to the search first. Inside a pool, tasks with a
+ * higher priority run first; cover tasks of the same priority run newest first, because the
+ * most recently bound rows are the ones on the screen.
+ * <p>
+ * Use it with {@link android.os.AsyncTask#executeOnExecutor(Executor, Object[])}.
+ */
+public final class TaskScheduler {
+
+    // Priority of a cover of a row on the screen
+    public static final int PRIORITY_VISIBLE = 2;
+
+    // Priority of work the user is waiting for that is not a cover, e.g. a search
+    public static final int PRIORITY_NORMAL = 1;
+
+    // Priority of work for rows that are not on the screen yet
+    public static final int PRIORITY_OFFSCREEN = 0;
+
+    // Number of threads of each pool
+    private static final int SEARCH_THREADS = 2;
+    private static final int IMAGE_THREADS = 3;
+
+    // Idle threads are stopped after this time, in seconds
+    private static final long KEEP_ALIVE = 30;
+
+    private static TaskScheduler sInstance;
+
+    private final ThreadPoolExecutor mSearchPool;
+    private final ThreadPoolExecutor mImagePool;
+    private final Executor mSearchExecutor;
+
+    // Order of submission, used to break ties between tasks of the same priority
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * Return the scheduler shared by the whole app.
+     */
+    public static synchronized TaskScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new TaskScheduler();
+        }
+        return sInstance;
+    }
+
+    private TaskScheduler() {
+        mSearchPool = createPool(SEARCH_THREADS, "search", Process.THREAD_PRIORITY_DEFAULT);
+        mImagePool = createPool(IMAGE_THREADS, "image", Process.THREAD_PRIORITY_BACKGROUND);
+        mSearchExecutor = executor(mSearchPool, PRIORITY_NORMAL, false);
+    }
+
+    /**
+     * Returns the executor for search requests and parsing.
+     */
+    public Executor searchExecutor() {
+        return mSearchExecutor;
+    }
+
+    /**
+     * Returns an executor that queues search work with the given priority, e.g. to prefetch
+     * pages behind the searches the user is waiting for.
+     */
+    public Executor searchExecutor(int priority) {
+        return executor(mSearchPool, priority, false);
+    }
+
+    /**
+     * Returns an executor that queues cover work with the given priority.
+     */
+    public Executor imageExecutor(int priority) {
+        return executor(mImagePool, priority, true);
+    }
+
+    /**
+     * Returns the number of searches waiting for a thread.
+     */
+    public int searchQueueDepth() {
+        return queueDepth(mSearchPool);
+    }
+
+    /**
+     * Returns the number of cover tasks waiting for a thread.
+     */
+    public int imageQueueDepth() {
+        return queueDepth(mImagePool);
+    }
+
+    public int activeSearchCount() {
+        return mSearchPool.getActiveCount();
+    }
+
+    public int activeImageCount() {
+        return mImagePool.getActiveCount();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskScheduler{search active=" + activeSearchCount() + " queued=" + searchQueueDepth()
+                + "; image active=" + activeImageCount() + " queued=" + imageQueueDepth() + "}";
+    }
+
+    private Executor executor(final ThreadPoolExecutor pool, final int priority, final boolean newestFirst) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                long sequence = mSequence.incrementAndGet();
+                pool.execute(new PrioritizedTask(command, priority, newestFirst ? -sequence : sequence));
+            }
+        };
+    }
+
+    /**
+     * Count the queued tasks, without the cancelled ones that will be skipped.
+     */
+    private static int queueDepth(ThreadPoolExecutor pool) {
+        int depth = 0;
+        for (Runnable task : pool.getQueue()) {
+            if (!((PrioritizedTask) task).isCancelled()) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private static ThreadPoolExecutor createPool(int threads, final String name, final int threadPriority) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        runnable.run();
+                    }
+                }, name + " #" + mCount.incrementAndGet());
+            }
+        };
+        // A priority queue is unbounded, so the pool never grows past its core size
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * A task with its priority. Higher priorities come first, then lower sequence numbers.
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable mRunnable;
+        private final int mPriority;
+        private final long mSequence;
+
+        PrioritizedTask(Runnable runnable, int priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+
+        /**
+         * Returns true if the task was cancelled while it was waiting, e.g. a cover
+         * download of a recycled row.
+         */
+        boolean isCancelled() {
+            return mRunnable instanceof Future && ((Future<?>) mRunnable).isCancelled();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
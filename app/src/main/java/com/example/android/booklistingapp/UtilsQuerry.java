@@ -1,184 +1,311 @@
 package com.example.android.booklistingapp;
 
-import android.text.TextUtils;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public class UtilsQuerry {
     private static final String LOG_TAG = UtilsQuerry.class.getSimpleName();
 
+    // Number of recent searches the latency percentiles are computed from
+    private static final int LATENCY_SAMPLES = 100;
+
+    // End to end latency of the recent searches
+    private static final LatencyTracker sLatencyTracker = new LatencyTracker(LATENCY_SAMPLES);
+
+    // Retries of the requests that failed because the API is busy or broken
+    private static volatile RetryPolicy sRetryPolicy = RetryPolicy.defaults();
+
+    // Fails the requests at once while the API keeps failing
+    private static volatile CircuitBreaker sCircuitBreaker = CircuitBreaker.defaults();
+
+    // Shares one request and one parse between the identical searches that are in flight
+    private static final SingleFlight<List<Book>> sFlights = new SingleFlight<>();
+
+    // Response body bytes the requests of each thread received so far
+    private static final ThreadLocal<long[]> sBytesReceived = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    // Buffer of each thread for the batch pages, reused for the pages it reads one after the other
+    private static final ThreadLocal<ResponseBuffer> sBuffers = new ThreadLocal<ResponseBuffer>() {
+        @Override
+        protected ResponseBuffer initialValue() {
+            return new ResponseBuffer();
+        }
+    };
+
     //An empty private constructor makes sure that the class is not going to be initialised.
     private UtilsQuerry() {
     }
 
     /**
-     * Return list of {@link Book} objects that has been built up from
-     * parsing a JSON response.
+     * Query the Google Books API and return a list of {@link Book} object.
+     * Requests for the same URL that are in flight at the same time share one request.
      */
+    public static List<Book> fetchBookData(final String requestUrl) {
+        return share(requestUrl, new SingleFlight.Loader<List<Book>>() {
+            @Override
+            public List<Book> load() {
+                return fetch(requestUrl, null, false).books;
+            }
+        });
+    }
 
-    public static List<Book> extractFeaturesFromJson(String booksJSON) {
+    /**
+     * Query the Google Books API for a page of a batch, e.g. of the {@link CatalogBatch}, and
+     * return its list of {@link Book} objects. Nobody waits for the first books of a batch
+     * page, so the whole response is read into the {@link ResponseBuffer} of the thread,
+     * sized by its Content-Length, and then parsed. A page has at most 40 books, too few to
+     * split across threads: the batch runs its pages in parallel instead.
+     */
+    public static List<Book> fetchBatchPage(final String requestUrl) {
+        return share(requestUrl, new SingleFlight.Loader<List<Book>>() {
+            @Override
+            public List<Book> load() {
+                return fetch(requestUrl, null, true).books;
+            }
+        });
+    }
 
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(booksJSON)) {
-            return null;
+    /**
+     * Return the list of {@link Book} objects for the query, from the cache when the cached
+     * results are still fresh, and from the Google Books API otherwise.
+     * <p>
+     * Stale results are revalidated with the server, and they are returned as they are when
+     * there is no network connection or the server cannot be reached. Searches for the same
+     * page that are in flight at the same time, e.g. after a double tap or a rotation, share
+     * one request and one parse.
+     *
+     * @param requestUrl  is the URL of the query
+     * @param cache       is the cache of the earlier results
+     * @param cacheKey    is the key of the query in the cache, see {@link QueryCache#key(String, String, int)}
+     * @param isConnected is false when the device has no network connection
+     */
+    public static List<Book> fetchBookData(final String requestUrl, final QueryCache cache,
+                                           final String cacheKey, boolean isConnected) {
+        if (!isConnected) {
+            // Only reads the cache, there is no request to share
+            return fetchBookData(requestUrl, cache, cacheKey, false, System.currentTimeMillis());
         }
+        // The cache key is the server, the normalized search word and the page: the same for
+        // every spelling of the same search, and different for the same search on another server
+        return share(cacheKey, new SingleFlight.Loader<List<Book>>() {
+            @Override
+            public List<Book> load() {
+                return fetchBookData(requestUrl, cache, cacheKey, true, System.currentTimeMillis());
+            }
+        });
+    }
 
-        // Create an empty ArrayList to which we can start adding books
-        List<Book> books = new ArrayList<>();
-
-        // Try to parse the JSON response string. If there's a problem with the way the JSON
-        // is formatted, a JSONException exception object will be thrown.
-        // Catch the exception so the app doesn't crash, and print the error message to the logs.
+    /**
+     * Run the load, or wait for the identical load that is in flight.
+     */
+    private static List<Book> share(String key, SingleFlight.Loader<List<Book>> loader) {
         try {
-            // Convert JSONObject from the JSON response string
-            JSONObject baseJsonResponse = new JSONObject(booksJSON);
-
-            if (baseJsonResponse.has("items")) {
-                // Extract "items" JSONArray associated with the key called "items"
-                // which represents a list of information about the book
-                JSONArray booksArray = baseJsonResponse.getJSONArray("items");
-
-                // For each book in the booksArray, create an {@link Books} object
-                for (int i = 0; i < booksArray.length(); i++) {
-                    // Get a single book and position it within the list of books
-                    JSONObject currentBook = booksArray.getJSONObject(i);
-
-
-                    // For a given book, extract the JSONObject associated with the
-                    // key called "volumeInfo", which represents a list of all information
-                    // for that book
-                    JSONObject volumeInfo = currentBook.getJSONObject("volumeInfo");
-
-                    // Extract the value from the key called "title"
-                    String title = volumeInfo.getString("title");
-
-
-                    /// Extract "authors" JSONArray associated with the key called "authors"
-                    // which may represents a list of authors of the book
-                    JSONArray authorsArray;
-                    StringBuilder authors = new StringBuilder();
-                    if (volumeInfo.has("authors")) {
-                        authorsArray = volumeInfo.getJSONArray("authors");
-                        // Iterate the JSONArray and print the info of JSONObjects
-                        for (int n = 0; n < authorsArray.length(); n++) {
-                            authors.append(System.getProperty("line.separator"));
-                            authors.append(authorsArray.getString(n));
-                        }
-                    } else {
-                        authors.append("No Author");
-                    }
+            return sFlights.execute(key, loader);
+        } catch (InterruptedException e) {
+            // The search was cancelled while it waited
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 
-                    /// Extract "categories" JSONArray associated with the key called "categories"
-                    // which may represents a list of authors of the book
-                    JSONArray categoriesArray;
-                    StringBuilder categories = new StringBuilder();
-                    if (volumeInfo.has("categories")) {
-                        categoriesArray = volumeInfo.getJSONArray("categories");
-                        // Iterate the JSONArray and print the info of JSONObjects
-                        for (int n = 0; n < categoriesArray.length(); n++) {
-                            categories.append(System.getProperty("line.separator"));
-                            categories.append(categoriesArray.getString(n));
-                        }
-                    } else {
-                        categories.append("No categories");
-                    }
+    private static List<Book> fetchBookData(String requestUrl, QueryCache cache, String cacheKey,
+                                            boolean isConnected, long now) {
+        QueryCache.Entry cached = cache.get(cacheKey);
+        if (cached != null && (cached.isFresh(now) || !isConnected)) {
+            return cached.getBooks();
+        }
+        if (!isConnected) {
+            return null;
+        }
 
+        // Send the validators of the stale entry, so the server can answer "not modified"
+        BookResponse response = fetch(requestUrl, cached, false);
+        if (response.isNotModified() && cached != null) {
+            cache.put(cacheKey, cached.revalidated(now));
+            return cached.getBooks();
+        }
+        if (response.isSuccessful()) {
+            cache.put(cacheKey, new QueryCache.Entry(response.books, response.eTag,
+                    response.lastModified, now));
+            // Later searches find these books on the device too
+            BookIndex.getInstance().addAll(response.books);
+            return response.books;
+        }
 
-                    // Extract the URL of the book
-                    String url = null;
-                    if (volumeInfo.has("infoLink")) {
-                        url = volumeInfo.getString("infoLink");
-                    }
+        // The server could not be reached, or keeps failing and is left alone for a while:
+        // stale results are better than none
+        return cached != null ? cached.getBooks() : response.books;
+    }
 
-                    // Extract the value from the key called "publishedDate"
-                    String publishedDate = "";
-                    if (volumeInfo.has("publishedDate")) {
-                        publishedDate = volumeInfo.getString("publishedDate");
-                    } else {
-                        publishedDate = "";
-                    }
+    /**
+     * Perform the request, with retries, and record how long it took.
+     *
+     * @param validators is a cached entry to revalidate, or null
+     * @param wholeBody  is true to read the whole response before parsing it
+     */
+    private static BookResponse fetch(String requestUrl, QueryCache.Entry validators,
+                                      boolean wholeBody) {
+        RequestConfig config = HttpClient.getInstance().getConfig();
+
+        // Only debug builds can be slowed down on purpose, e.g. to show the loading indicator
+        if (config.getDebugDelay() > 0) {
+            try {
+                Thread.sleep(config.getDebugDelay());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new BookResponse();
+            }
+        }
 
-                    JSONObject imageLinks = volumeInfo.getJSONObject("imageLinks");
-                    String thumbnailLink = "";
-                    boolean pictureUrlExists = imageLinks.has("smallThumbnail");
-                    if (pictureUrlExists) {
-                        thumbnailLink = imageLinks.getString("smallThumbnail");
-                    }
+        // A cancelled search doesn't need to go to the network at all
+        if (Thread.currentThread().isInterrupted()) {
+            return new BookResponse();
+        }
 
-                    // Extract the value from the key called "description"
-                    String description = "";
-                    if (volumeInfo.has("description")) {
-                        description = volumeInfo.getString("description");
-                    } else {
-                        description = "";
-                    }
+        //Create URL object
+        URL url = createUrl(requestUrl);
 
-                    // Extract the value from the key called "description"
-                    String publisher = "";
-                    if (volumeInfo.has("publisher")) {
-                        publisher = volumeInfo.getString("publisher");
-                    } else {
-                        publisher = "";
-                    }
+        long start = System.nanoTime();
+        BookResponse response = fetchWithRetries(url, validators, wholeBody);
+        // The latency the user sees, the retries included
+        sLatencyTracker.record((System.nanoTime() - start) / 1000000);
 
-                    // Create a new {@link Books} object with the title, subtitle and authors
-                    // from the JSON response.
-                    Book booksObject = new Book(title, authors, publisher, url, publishedDate, categories, description, thumbnailLink);
+        //Return the response
+        return response;
+    }
 
-                    // Add the new {@link Books} to the list of books
-                    books.add(booksObject);
+    /**
+     * Perform the request, and send it again after a pause while the API answers that it is
+     * busy or broken, as allowed by the {@link RetryPolicy}. No request is sent while the
+     * {@link CircuitBreaker} is open.
+     */
+    private static BookResponse fetchWithRetries(URL url, QueryCache.Entry validators,
+                                                 boolean wholeBody) {
+        RetryPolicy retryPolicy = sRetryPolicy;
+        CircuitBreaker circuitBreaker = sCircuitBreaker;
+        BookResponse response = new BookResponse();
+        for (int attempt = 1; ; attempt++) {
+            Metrics metrics = Metrics.getInstance();
+            if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+                metrics.counter("http.rejected").increment();
+                if (BuildConfig.DEBUG) {
+                    Log.d(LOG_TAG, "Not sending the request, " + circuitBreaker);
                 }
+                return response;
+            }
+
+            //Perform HTTP request & parse the JSON respond while it is being received
+            metrics.counter(attempt == 1 ? "http.requests" : "http.retries").increment();
+            RequestTiming timing = new RequestTiming();
+            response = new BookResponse();
+            try {
+                response = makeHttpRequest(url, timing, validators, wholeBody);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error", e);
+            }
+            record(timing, response);
+            sBytesReceived.get()[0] += timing.bodyBytes;
+            if (BuildConfig.DEBUG) {
+                Log.d(LOG_TAG, "Search attempt " + attempt + " " + timing + " (" + sLatencyTracker + ")");
+            }
+
+            // A cancelled request tells nothing about the health of the API
+            if (Thread.currentThread().isInterrupted()) {
+                return response;
+            }
+            if (!response.isServiceFailure()) {
+                circuitBreaker.onSuccess();
+                return response;
+            }
+            circuitBreaker.onFailure(System.currentTimeMillis(), response.retryAfter);
+            metrics.counter("http.failures").increment();
+
+            if (!RetryPolicy.isRetryable(response.responseCode)) {
+                return response;
+            }
+            long delay = retryPolicy.delayBeforeRetry(attempt, response.retryAfter);
+            if (delay < 0) {
+                return response;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return response;
             }
         }
-        catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
-            Log.e(LOG_TAG, "Problem parsing the JSON list books", e);
+    }
+
+    /**
+     * Record the phases of a request, and the size of its response, into the {@link Metrics}.
+     */
+    private static void record(RequestTiming timing, BookResponse response) {
+        Metrics metrics = Metrics.getInstance();
+        metrics.timer("http.connect").record(timing.connectNanos / 1000);
+        metrics.timer("http.first_byte").record(timing.firstByteNanos / 1000);
+        if (response.books != null) {
+            metrics.timer("http.read").record(timing.readNanos / 1000);
+            metrics.timer("search.parse").record(timing.parseNanos / 1000);
+            metrics.histogram("search.items", "books").record(response.books.size());
         }
+    }
 
-        // Return the list of books
-        return books;
+    /**
+     * Replace the timeouts and the debug delay used by the next requests.
+     * The timeouts apply to the cover downloads too.
+     */
+    public static void setRequestConfig(RequestConfig config) {
+        HttpClient.getInstance().setConfig(config);
+    }
+
+    public static RequestConfig getRequestConfig() {
+        return HttpClient.getInstance().getConfig();
     }
 
     /**
-     * Query the Google Books API and return a list of {@link Book} object.
+     * Replace how the requests that failed because the API is busy or broken are retried.
      */
-    public static List<Book> fetchBookData(String requestUrl) {
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    public static void setRetryPolicy(RetryPolicy retryPolicy) {
+        sRetryPolicy = retryPolicy;
+    }
 
-        //Create URL object
-        URL url = createUrl(requestUrl);
+    /**
+     * Replace the circuit breaker of the requests, e.g. with a new closed one.
+     */
+    public static void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        sCircuitBreaker = circuitBreaker;
+    }
 
-        //Perform HTTP request & receive a JSON respond
-        String jsonRespond = null;
-        try {
-            jsonRespond = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error", e);
-        }
+    public static CircuitBreaker getCircuitBreaker() {
+        return sCircuitBreaker;
+    }
 
-        //Return the list
-        return extractFeaturesFromJson(jsonRespond);
+    /**
+     * Returns the number of response body bytes the requests of the calling thread received
+     * so far. What a fetch downloaded is the difference before and after it; a page found in
+     * the cache, or shared with a request of another thread, downloads nothing.
+     */
+    public static long getBytesReceived() {
+        return sBytesReceived.get()[0];
+    }
+
+    /**
+     * Returns the end to end latency of the recent searches.
+     */
+    public static LatencyTracker getLatencyTracker() {
+        return sLatencyTracker;
     }
 
     /**
@@ -196,64 +323,82 @@ public class UtilsQuerry {
 
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the list of {@link Book}s
+     * parsed straight from the response stream. The time spent in every phase is
+     * recorded into the given {@link RequestTiming}.
+     *
+     * @param validators is a cached entry whose ETag and Last-Modified values are sent
+     *                   with the request, or null
+     * @param wholeBody  is true to read the whole response into the {@link ResponseBuffer}
+     *                   of the thread before parsing it
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static BookResponse makeHttpRequest(URL url, RequestTiming timing,
+                                                QueryCache.Entry validators, boolean wholeBody)
+            throws IOException {
+        BookResponse response = new BookResponse();
 
         // If the URL is null, then return early.
         if (url == null) {
-            return jsonResponse;
+            return response;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (validators != null && validators.getETag() != null) {
+            headers.put("If-None-Match", validators.getETag());
+        }
+        if (validators != null && validators.getLastModified() != null) {
+            headers.put("If-Modified-Since", validators.getLastModified());
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        HttpClient.Response httpResponse = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            httpResponse = HttpClient.getInstance().get(url, headers, timing);
+            int responseCode = httpResponse.getResponseCode();
+            response.responseCode = responseCode;
 
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
-            } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+            // then parse the input stream as it arrives.
+            if (responseCode == 200) {
+                response.eTag = httpResponse.getHeader("ETag");
+                response.lastModified = httpResponse.getHeader("Last-Modified");
+                long start = System.nanoTime();
+                if (wholeBody) {
+                    ResponseBuffer buffer = sBuffers.get();
+                    try {
+                        // The Content-Length of a compressed body says nothing of its text
+                        buffer.read(timing.wrap(httpResponse.getBody()),
+                                httpResponse.isCompressed() ? -1 : httpResponse.getContentLength());
+                        response.books = BookStreamParser.parse(buffer.reader());
+                    } finally {
+                        buffer.clear();
+                    }
+                } else {
+                    response.books = BookStreamParser.parse(timing.wrap(httpResponse.getBody()));
+                }
+                timing.parseNanos = System.nanoTime() - start - timing.readNanos;
+            } else if (responseCode != 304) {
+                // 304 means the cached results are still valid, there is no body to read
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
+                response.retryAfter = RetryPolicy.parseRetryAfter(
+                        httpResponse.getHeader("Retry-After"), System.currentTimeMillis());
             }
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem retrieving JSON results.", e);
+        } catch (RuntimeException e) {
+            // The streaming parser reports malformed JSON with unchecked exceptions
+            Log.e(LOG_TAG, "Problem parsing the JSON list books", e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
+            if (httpResponse != null) {
+                // Closing the response could throw an IOException, which is why
                 // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
-            }
-        }
-        return jsonResponse;
-    }
-
-    /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
-     */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+                // could be thrown. It keeps the connection alive for the next search.
+                try {
+                    httpResponse.close();
+                } finally {
+                    timing.bodyBytes = httpResponse.getBytesReceived();
+                }
             }
         }
-        return output.toString();
+        return response;
     }
-}
\ No newline at end of file
+}
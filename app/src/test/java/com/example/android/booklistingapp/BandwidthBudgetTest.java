@@ -0,0 +1,47 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link BandwidthBudget}.
+ */
+public class BandwidthBudgetTest {
+
+    @Test
+    public void budget_startsFullAndRunsOut() {
+        BandwidthBudget budget = new BandwidthBudget(1000, 100, 0);
+
+        assertTrue(budget.hasBudget(0));
+        budget.consume(600, 0);
+        assertTrue(budget.hasBudget(0));
+        budget.consume(600, 0);
+
+        assertFalse(budget.hasBudget(0));
+        assertEquals(-200, budget.available(0));
+    }
+
+    @Test
+    public void budget_refillsUpToItsCapacity() {
+        BandwidthBudget budget = new BandwidthBudget(1000, 100, 0);
+        budget.consume(1200, 0);
+
+        // 100 bytes per second pay back the 200 overspent bytes in 2 seconds
+        assertFalse(budget.hasBudget(2000));
+        assertTrue(budget.hasBudget(2500));
+        assertEquals(50, budget.available(2500));
+        assertEquals(1000, budget.available(60000));
+    }
+
+    @Test
+    public void budget_ignoresTimeGoingBack() {
+        BandwidthBudget budget = new BandwidthBudget(1000, 100, 5000);
+        budget.consume(500, 5000);
+
+        assertEquals(500, budget.available(1000));
+        assertEquals(600, budget.available(6000));
+    }
+}
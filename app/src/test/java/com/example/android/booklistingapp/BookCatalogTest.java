@@ -0,0 +1,175 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Local unit tests of the {@link BookCatalog} file format and the {@link CatalogBatch} export.
+ */
+public class BookCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void catalog_readsBackWhatWasWritten() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book("id-1", "Caf\u00e9 \u4e66", new String[]{"Ann", "Bob"}, "Acme",
+                "http://books/1", "2017", new String[]{"Computers"}, "Long\ndescription", "http://covers/1"));
+        books.add(new Book(null, null, new String[0], null, null, null, new String[0], null, null));
+        books.add(new Book("id-3", "", new String[]{"Bob"}, "Acme", "", "", new String[]{"Computers", "Art"},
+                "", ""));
+        File file = folder.newFile("books.bkc");
+
+        BookCatalog.write(books, file);
+        BookCatalog catalog = BookCatalog.open(file);
+
+        assertEquals(3, catalog.size());
+        for (int i = 0; i < books.size(); i++) {
+            Book book = catalog.get(i);
+            assertEquals(books.get(i).getId(), book.getId());
+            assertTrue(books.get(i).hasSameContents(book));
+        }
+        assertArrayEquals(new String[]{"Ann", "Bob"}, catalog.get(0).getAuthors());
+        assertNull(catalog.get(1).getPublisher());
+        assertEquals(3, catalog.getAll().size());
+    }
+
+    @Test
+    public void catalog_storesRepeatedWordsOnce() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            books.add(new Book("id-" + i, "Title " + i, new String[]{"Some Author"}, "A publisher with a long name",
+                    "", "", new String[]{"Computers / Programming / General"}, "", ""));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        BookCatalog.write(books, out);
+
+        // Three dictionary entries, the records only hold their indexes: about 30 bytes
+        // a book, where the publisher, author and category alone are 60
+        BookCatalog catalog = BookCatalog.read(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals("BookCatalog{books=100 words=3}", catalog.toString());
+        assertTrue("Catalog of " + out.size() + " bytes", out.size() < 100 * 32);
+        assertEquals("A publisher with a long name", catalog.get(99).getPublisher());
+    }
+
+    @Test
+    public void catalog_listsItsBooksWithoutDecodingThemFirst() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            books.add(new Book("id-" + i, "Title " + i, new String[]{"Author"}, "Acme", "", "",
+                    new String[0], "", ""));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BookCatalog.write(books, out);
+        BookCatalog catalog = BookCatalog.read(ByteBuffer.wrap(out.toByteArray()));
+
+        List<Book> list = catalog.asList();
+
+        assertEquals(500, list.size());
+        assertEquals("Title 499", list.get(499).getTitle());
+        // Decoded again, not kept
+        assertTrue(list.get(7) != list.get(7));
+        BookIndex index = new BookIndex();
+        index.addAll(list.subList(0, 300));
+        assertEquals(300, index.size());
+        assertEquals("id-299", index.search("299", 10).get(0).getId());
+    }
+
+    @Test
+    public void catalog_rejectsOtherFiles() throws Exception {
+        assertNotReadable(new byte[0]);
+        assertNotReadable("{\"items\": []}".getBytes("UTF-8"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BookCatalog.write(Collections.singletonList(new Book("id", "Title", new String[0], "Acme",
+                "", "", new String[0], "", "")), out);
+        byte[] data = out.toByteArray();
+
+        // Another version of the format
+        byte[] version = data.clone();
+        version[7] = 2;
+        assertNotReadable(version);
+
+        // Cut off in the dictionary
+        assertNotReadable(Arrays.copyOf(data, 18));
+    }
+
+    @Test
+    public void catalog_reportsCorruptRecords() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BookCatalog.write(Collections.singletonList(new Book("id", "Title", new String[0], "Acme",
+                "", "", new String[0], "", "")), out);
+        byte[] data = out.toByteArray();
+
+        BookCatalog catalog = BookCatalog.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 3)));
+        try {
+            catalog.get(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void batch_exportsThePagesOfAllQueries() throws Exception {
+        LocalHttpServer server = new LocalHttpServer();
+        server.serveFixture("/books");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            String url = server.url("/books?q=");
+            File file = new File(folder.getRoot(), "seed.bkc");
+
+            // The same ten books three times
+            int count = CatalogBatch.export(Arrays.asList(url + "a", url + "b", url + "c"), executor, file);
+
+            assertEquals(10, count);
+            List<Book> books = BookCatalog.open(file).getAll();
+            assertEquals(10, books.size());
+            assertEquals("Android Programming", books.get(0).getTitle());
+        } finally {
+            executor.shutdownNow();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void batch_pageUrlsCoverEveryPageOfEveryQuery() {
+        List<String> urls = CatalogBatch.pageUrls(Arrays.asList("android", "subject:fiction"), 2);
+
+        assertEquals(4, urls.size());
+        assertTrue(urls.get(1).startsWith(BookQuery.BOOK_URL_BASE + "android&startIndex=40&maxResults=40"));
+        assertTrue(urls.get(2).startsWith(BookQuery.BOOK_URL_BASE + "subject%3Afiction&startIndex=0"));
+    }
+
+    private void assertNotReadable(byte[] data) throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        try {
+            BookCatalog.open(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
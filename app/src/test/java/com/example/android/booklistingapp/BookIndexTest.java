@@ -0,0 +1,146 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link BookIndex}.
+ */
+public class BookIndexTest {
+
+    @Test
+    public void words_areLowerCaseLettersAndDigits() {
+        assertEquals(Arrays.asList("head", "first", "android", "3", "0"),
+                BookIndex.words("Head First: Android 3.0!", 1));
+        assertEquals(Arrays.asList("head", "first", "android"),
+                BookIndex.words("Head First: Android 3.0!", 2));
+    }
+
+    @Test
+    public void search_matchesEveryFieldByPrefix() throws Exception {
+        BookIndex index = new BookIndex();
+        index.addAll(BookStreamParser.parse(getClass().getClassLoader()
+                .getResourceAsStream("books_android.json")));
+
+        assertEquals("Android Security Internals", index.search("secur", 10).get(0).getTitle());
+        assertEquals("Head First Android Development", index.search("griff", 10).get(0).getTitle());
+        assertEquals("Android f\u00fcr Einsteiger", index.search("rheinwerk", 10).get(0).getTitle());
+        assertEquals("Android Cookbook", index.search("wireless", 10).get(0).getTitle());
+        assertEquals("Kotlin for Android Developers", index.search("bytecode", 10).get(0).getTitle());
+        // A Cyrillic title, found by a lower case word
+        assertEquals("\u0410\u043d\u0434\u0440\u043e\u0438\u0434: "
+                        + "\u0440\u0443\u043a\u043e\u0432\u043e\u0434\u0441\u0442\u0432\u043e",
+                index.search("\u0430\u043d\u0434\u0440\u043e\u0438\u0434", 10).get(0).getTitle());
+        assertTrue(index.search("nothing", 10).isEmpty());
+    }
+
+    @Test
+    public void search_needsEveryWord() throws Exception {
+        BookIndex index = new BookIndex();
+        index.addAll(BookStreamParser.parse(getClass().getClassLoader()
+                .getResourceAsStream("books_android.json")));
+
+        List<Book> books = index.search("android NAKAMURA", 10);
+
+        assertEquals(2, books.size());
+        for (Book book : books) {
+            assertTrue(Arrays.asList(book.getAuthors()).contains("Masumi Nakamura"));
+        }
+        assertTrue(index.search("kotlin security", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ranksTitleMatchesFirst() {
+        BookIndex index = new BookIndex();
+        index.add(book("1", "Learning Java", "A book about kotlin"));
+        index.add(book("2", "Kotlin in Action", "A book about kotlin"));
+
+        List<Book> books = index.search("kotlin", 10);
+
+        assertEquals(2, books.size());
+        assertEquals("Kotlin in Action", books.get(0).getTitle());
+        assertEquals(1, index.search("kotlin", 1).size());
+    }
+
+    @Test
+    public void add_replacesTheBookWithTheSameKey() {
+        BookIndex index = new BookIndex();
+        index.add(book("1", "Old title", ""));
+        index.add(book("1", "New title", ""));
+        index.add(book("1", "New title", ""));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals("New title", index.search("new", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void add_dropsTheWordsOfReplacedBooks() {
+        BookIndex index = new BookIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add(book("1", "Title" + i, ""));
+        }
+
+        assertEquals(1, index.size());
+        assertTrue(index.wordCount() < 10);
+        assertEquals("Title99", index.search("title", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void add_dropsTheOldestBooksPastTheLimit() {
+        BookIndex index = new BookIndex(3);
+        index.add(book("1", "First kotlin", ""));
+        index.add(book("2", "Second kotlin", ""));
+        index.add(book("3", "Third kotlin", ""));
+        // Replaced, so it counts as added last
+        index.add(book("1", "First kotlin again", ""));
+        index.add(book("4", "Fourth kotlin", ""));
+
+        assertEquals(3, index.size());
+        assertTrue(index.search("second", 10).isEmpty());
+        assertEquals(3, index.search("kotlin", 10).size());
+        assertEquals("First kotlin again", index.search("first", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void addAll_addsMoreBooksThanOneChunk() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(book(String.valueOf(i), "Book " + i, "About java"));
+        }
+        BookIndex index = new BookIndex();
+
+        index.addAll(books);
+
+        assertEquals(1000, index.size());
+        assertEquals(40, index.search("java", 40).size());
+        assertEquals("Book 999", index.search("999", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void search_givesTheSameResultsEveryTime() {
+        BookIndex index = new BookIndex();
+        index.add(book("1", "Java patterns", "Kotlin"));
+        index.add(book("2", "Kotlin patterns", "Java"));
+        index.add(book("3", "Java", ""));
+
+        // Every search starts from clean scratch arrays, whatever the one before matched
+        for (int i = 0; i < 3; i++) {
+            assertEquals(2, index.search("java pat", 10).size());
+            assertEquals("Kotlin patterns", index.search("kotlin patterns", 10).get(0).getTitle());
+            assertEquals(3, index.search("java", 10).size());
+        }
+        index.add(book("4", "Java kotlin", ""));
+        assertEquals(3, index.search("java kotlin", 10).size());
+    }
+
+    private static Book book(String id, String title, String description) {
+        return new Book(id, title, new String[0], "", null, "", new String[0], description, "");
+    }
+}
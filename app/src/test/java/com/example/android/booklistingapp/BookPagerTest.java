@@ -0,0 +1,86 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for the page window of {@link BookPager}.
+ */
+public class BookPagerTest {
+
+    private static final int PAGE = BookPager.PAGE_SIZE;
+
+    @Test
+    public void append_dropsFirstPageOverTheLimit() {
+        BookPager pager = new BookPager("android");
+        for (int i = 0; i < BookPager.MAX_PAGES; i++) {
+            assertEquals(0, pager.append(pager.nextStartIndex(), PAGE));
+        }
+        assertFalse(pager.hasPrevious());
+
+        assertEquals(PAGE, pager.append(pager.nextStartIndex(), PAGE));
+
+        assertEquals(BookPager.MAX_PAGES, pager.pageCount());
+        assertEquals(BookPager.MAX_PAGES * PAGE, pager.itemCount());
+        assertTrue(pager.hasPrevious());
+        assertEquals(0, pager.previousStartIndex());
+        assertEquals((BookPager.MAX_PAGES + 1) * PAGE, pager.nextStartIndex());
+    }
+
+    @Test
+    public void nextStartIndex_followsRequestedPagesNotReturnedBooks() {
+        BookPager pager = new BookPager("android");
+        // The API may return less books than asked for in the middle of the results
+        pager.append(0, PAGE - 3);
+
+        assertEquals(PAGE, pager.nextStartIndex());
+    }
+
+    @Test
+    public void emptyPage_endsTheResults() {
+        BookPager pager = new BookPager("android");
+        pager.append(0, PAGE);
+        pager.append(PAGE, 0);
+
+        assertFalse(pager.hasNext());
+        assertEquals(1, pager.pageCount());
+    }
+
+    @Test
+    public void duplicatePage_doesNotEndTheResults() {
+        BookPager pager = new BookPager("android");
+        pager.append(0, PAGE);
+        // Every book of the page was in the list already
+        pager.append(PAGE, PAGE, 0);
+
+        assertTrue(pager.hasNext());
+        assertEquals(2 * PAGE, pager.nextStartIndex());
+        assertEquals(PAGE, pager.itemCount());
+        for (int i = 2; i < BookPager.MAX_PAGES; i++) {
+            pager.append(pager.nextStartIndex(), PAGE, PAGE - 1);
+        }
+
+        // Drops the rows the first page added, not the books it loaded
+        assertEquals(PAGE, pager.append(pager.nextStartIndex(), PAGE, PAGE));
+        assertEquals(0, pager.append(pager.nextStartIndex(), PAGE, PAGE));
+    }
+
+    @Test
+    public void prepend_dropsLastPageOverTheLimit() {
+        BookPager pager = new BookPager("android");
+        for (int i = 0; i <= BookPager.MAX_PAGES; i++) {
+            pager.append(pager.nextStartIndex(), PAGE);
+        }
+        pager.append(pager.nextStartIndex(), 0);
+        assertFalse(pager.hasNext());
+
+        assertEquals(PAGE, pager.prepend(pager.previousStartIndex(), PAGE));
+
+        assertFalse(pager.hasPrevious());
+        assertTrue(pager.hasNext());
+        assertEquals(BookPager.MAX_PAGES * PAGE, pager.nextStartIndex());
+    }
+}
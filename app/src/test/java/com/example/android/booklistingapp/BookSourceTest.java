@@ -0,0 +1,153 @@
+package com.example.android.booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link HttpBookSource} and the {@link CacheBookSource} against a local
+ * {@link MockBookServer}.
+ */
+public class BookSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockBookServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        UtilsQuerry.setRetryPolicy(new RetryPolicy(3, 10, 100, new Random(7)));
+        UtilsQuerry.setCircuitBreaker(new CircuitBreaker(10, 1000));
+        mServer = new MockBookServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        UtilsQuerry.setRetryPolicy(RetryPolicy.defaults());
+        UtilsQuerry.setCircuitBreaker(CircuitBreaker.defaults());
+    }
+
+    @Test
+    public void http_loadsThePageItIsAskedFor() {
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+
+        List<Book> books = source.fetchPage("android", 20, 20, true);
+
+        assertEquals(20, books.size());
+        assertEquals("android-20", books.get(0).getId());
+        assertEquals("Publisher 9", books.get(19).getPublisher());
+        assertNull(source.fetchPage("android", 0, 20, false));
+    }
+
+    @Test
+    public void http_retriesTheInjectedFaults() {
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+        // Every second request fails
+        mServer.setFaults(0.5, 503);
+
+        for (int page = 0; page < 4; page++) {
+            assertEquals(10, source.fetchPage("faults", page * 10, 10, true).size());
+        }
+        assertEquals(7, mServer.getRequestCount());
+    }
+
+    @Test
+    public void http_waitsForASlowServer() {
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+        mServer.setLatency(200);
+
+        long start = System.currentTimeMillis();
+        assertEquals(10, source.fetchPage("slow", 0, 10, true).size());
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    @Test
+    public void http_readsLargePages() {
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+        mServer.setDescriptionLength(20000);
+
+        List<Book> books = source.fetchPage("large", 0, 40, true);
+
+        assertEquals(40, books.size());
+        assertEquals(20000, books.get(39).getDescription().length());
+    }
+
+    @Test
+    public void cache_servesThePagesTheHttpSourceLoaded() {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 1000000));
+        BookSource http = new HttpBookSource(mServer.getBaseUrl(), cache);
+        List<Book> books = http.fetchPage("cached", 0, 10, true);
+        mServer.stop();
+
+        BookSource cached = new CacheBookSource(mServer.getBaseUrl(), cache);
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(books.size(), cached.fetchPage("cached", 0, 10, true).size());
+        assertTrue(books.get(3).hasSameContents(cached.fetchPage("cached", 0, 10, false).get(3)));
+        // Fresh, so the stopped server is not asked
+        assertEquals(books.size(), http.fetchPage("cached", 0, 10, true).size());
+        assertNull(cached.fetchPage("cached", 10, 10, true));
+    }
+
+    @Test
+    public void http_countsTheBytesItDownloaded() {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 1000000));
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), cache);
+        mServer.setDescriptionLength(5000);
+
+        long before = UtilsQuerry.getBytesReceived();
+        source.fetchPage("bytes", 0, 10, true);
+        long downloaded = UtilsQuerry.getBytesReceived() - before;
+
+        // Ten descriptions, and the rest of the page
+        assertTrue("Downloaded " + downloaded, downloaded > 10 * 5000 && downloaded < 10 * 6000);
+        // Fresh in the cache, nothing to download
+        source.fetchPage("bytes", 0, 10, true);
+        assertEquals(before + downloaded, UtilsQuerry.getBytesReceived());
+    }
+
+    @Test
+    public void http_countsTheCompressedBytes() {
+        BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+        mServer.setDescriptionLength(5000);
+        mServer.setGzip(true);
+
+        long before = UtilsQuerry.getBytesReceived();
+        List<Book> books = source.fetchPage("gzip", 0, 10, true);
+        long downloaded = UtilsQuerry.getBytesReceived() - before;
+
+        // The repeated descriptions pack into far fewer bytes than the 50000 chars they unpack to
+        assertEquals(5000, books.get(9).getDescription().length());
+        assertTrue("Downloaded " + downloaded, downloaded > 0 && downloaded < 5000);
+    }
+
+    @Test
+    public void cache_keepsThePagesOfEveryServerApart() throws Exception {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 1000000));
+        MockBookServer other = new MockBookServer();
+        try {
+            other.setDescriptionLength(10);
+            new HttpBookSource(mServer.getBaseUrl(), cache).fetchPage("shared", 0, 10, true);
+
+            List<Book> books = new HttpBookSource(other.getBaseUrl(), cache).fetchPage("shared", 0, 10, true);
+
+            // The fresh page of the first server is not taken for the other one
+            assertEquals(1, other.getRequestCount());
+            assertEquals(10, books.get(0).getDescription().length());
+            assertNull(new CacheBookSource(BookQuery.BOOK_URL_BASE, cache).fetchPage("shared", 0, 10, true));
+        } finally {
+            other.stop();
+        }
+    }
+}
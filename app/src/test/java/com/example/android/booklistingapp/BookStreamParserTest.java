@@ -0,0 +1,104 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link BookStreamParser} gives the same books as
+ * {@link BookJsonParser#parse(String)} for a recorded Google Books response.
+ */
+public class BookStreamParserTest {
+
+    private static final String FIXTURE = "books_android.json";
+
+    @Test
+    public void streamingParser_matchesJsonObjectParser() throws Exception {
+        List<Book> expected = BookJsonParser.parse(
+                BookJsonParser.readFromStream(openFixture()));
+        List<Book> actual = BookStreamParser.parse(openFixture());
+
+        assertEquals(10, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameBook(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void streamingParser_emitsBooksInResponseOrder() throws Exception {
+        final List<String> titles = new ArrayList<>();
+        BookStreamParser.parse(new InputStreamReader(openFixture(), "UTF-8"),
+                new BookStreamParser.BookListener() {
+                    @Override
+                    public void onBook(Book book) {
+                        titles.add(book.getTitle());
+                    }
+                });
+
+        assertEquals(10, titles.size());
+        assertEquals("Android Programming", titles.get(0));
+        assertEquals("Learning Android", titles.get(9));
+    }
+
+    @Test
+    public void streamingParser_usesDefaultsForMissingValues() throws Exception {
+        String json = "{\"totalItems\":1,\"items\":[{\"volumeInfo\":{\"title\":\"Untitled\","
+                + "\"authors\":null,\"imageLinks\":{\"thumbnail\":\"x\"}}}]}";
+        List<Book> books = new ArrayList<>();
+        BookStreamParser.parse(new StringReader(json), collectInto(books));
+
+        assertEquals(1, books.size());
+        Book book = books.get(0);
+        assertEquals("Untitled", book.getTitle());
+        assertEquals("No Author", book.getBookAuthor());
+        assertEquals("No categories", book.getCategories());
+        assertEquals("", book.getmThumbnailLink());
+        assertEquals("", book.getPublisher());
+        assertEquals(null, book.getUrl());
+    }
+
+    @Test
+    public void streamingParser_returnsNothingWithoutItems() throws Exception {
+        List<Book> books = new ArrayList<>();
+        BookStreamParser.parse(new StringReader("{\"kind\":\"books#volumes\",\"totalItems\":0}"),
+                collectInto(books));
+
+        assertTrue(books.isEmpty());
+    }
+
+    private static BookStreamParser.BookListener collectInto(final List<Book> books) {
+        return new BookStreamParser.BookListener() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        };
+    }
+
+    private InputStream openFixture() {
+        return getClass().getClassLoader().getResourceAsStream(FIXTURE);
+    }
+
+    private static void assertSameBook(Book expected, Book actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertArrayEquals(expected.getAuthors(), actual.getAuthors());
+        assertEquals(expected.getBookAuthor(), actual.getBookAuthor());
+        assertEquals(expected.getPublisher(), actual.getPublisher());
+        assertEquals(expected.getUrl(), actual.getUrl());
+        assertEquals(expected.getPublishedDate(), actual.getPublishedDate());
+        assertArrayEquals(expected.getCategoryList(), actual.getCategoryList());
+        assertEquals(expected.getCategories(), actual.getCategories());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getmThumbnailLink(), actual.getmThumbnailLink());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for the compact {@link Book} model.
+ */
+public class BookTest {
+
+    private static final String NEW_LINE = System.getProperty("line.separator");
+
+    @Test
+    public void repeatedValues_areShared() {
+        Book first = book(new String("O'Reilly Media"), new String("Computers"));
+        Book second = book(new String("O'Reilly Media"), new String("Computers"));
+
+        assertSame(first.getPublisher(), second.getPublisher());
+        assertSame(first.getCategoryList()[0], second.getCategoryList()[0]);
+    }
+
+    @Test
+    public void displayText_putsEveryValueOnItsOwnLine() {
+        Book book = new Book(null, "Title", new String[]{"Ann", "Bob"}, "", null, "",
+                new String[]{"Computers"}, "", "");
+
+        assertEquals(NEW_LINE + "Ann" + NEW_LINE + "Bob", book.getBookAuthor());
+        assertEquals(NEW_LINE + "Computers", book.getCategories());
+    }
+
+    @Test
+    public void shortDescription_isCutAfterAWholeWord() {
+        StringBuilder description = new StringBuilder();
+        while (description.length() < 1000) {
+            description.append("lorem ipsum ");
+        }
+        Book book = new Book(null, "Title", new String[0], "", null, "", new String[0],
+                description.toString(), "");
+
+        String shortDescription = book.getShortDescription();
+
+        assertTrue(book.hasLongDescription());
+        assertTrue(shortDescription.length() <= Book.SHORT_DESCRIPTION_LENGTH + 1);
+        assertTrue(shortDescription.endsWith("ipsum\u2026") || shortDescription.endsWith("lorem\u2026"));
+        assertSame(shortDescription, book.getShortDescription());
+    }
+
+    @Test
+    public void shortDescription_keepsShortDescriptions() {
+        Book book = new Book(null, "Title", new String[0], "", null, "", new String[0],
+                "A short description.", "");
+
+        assertFalse(book.hasLongDescription());
+        assertEquals("A short description.", book.getShortDescription());
+        assertNull(new Book(null, "Title", new String[0], "", null, "", new String[0], null, "")
+                .getShortDescription());
+    }
+
+    @Test
+    public void displayText_hasPlaceholdersForMissingValues() {
+        Book book = new Book(null, "Title", new String[0], "", null, "", new String[0], "", "");
+
+        assertEquals("No Author", book.getBookAuthor());
+        assertEquals("No categories", book.getCategories());
+    }
+
+    @Test
+    public void book_cannotBeChangedThroughItsArrays() {
+        String[] authors = {"Ann"};
+        Book book = new Book(null, "Title", authors, "", null, "", new String[0], "", "");
+        authors[0] = "Bob";
+        book.getAuthors()[0] = "Bob";
+
+        assertArrayEquals(new String[]{"Ann"}, book.getAuthors());
+    }
+
+    @Test
+    public void stableId_followsTheVolumeId() {
+        Book book = new Book("zq1aBQAAQBAJ", "Title", new String[0], "", "https://example.com/1", "",
+                new String[0], "", "");
+        Book sameVolume = new Book("zq1aBQAAQBAJ", "Other title", new String[0], "", null, "",
+                new String[0], "", "");
+        Book otherVolume = new Book("8u9wDwAAQBAJ", "Title", new String[0], "", "https://example.com/1", "",
+                new String[0], "", "");
+
+        assertEquals(book.getStableId(), sameVolume.getStableId());
+        assertNotEquals(book.getStableId(), otherVolume.getStableId());
+    }
+
+    @Test
+    public void key_fallsBackToTheUrl() {
+        Book book = new Book(null, "Title", new String[0], "", "https://example.com/1", "",
+                new String[0], "", "");
+
+        assertEquals("https://example.com/1", book.getKey());
+    }
+
+    @Test
+    public void sameContents_comparesTheShownValues() {
+        Book book = book("Publisher", "Computers");
+
+        assertTrue(book.hasSameContents(book("Publisher", "Computers")));
+        assertFalse(book.hasSameContents(book("Publisher", "Security")));
+    }
+
+    private static Book book(String publisher, String category) {
+        return new Book(null, "Title", new String[]{"Author"}, publisher, null, "2017",
+                new String[]{category}, "", "");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the states of the {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        breaker.onFailure(0, -1);
+        breaker.onFailure(0, -1);
+        breaker.onSuccess();
+        breaker.onFailure(0, -1);
+        breaker.onFailure(0, -1);
+        assertTrue(breaker.allowRequest(0));
+
+        breaker.onFailure(0, -1);
+
+        assertEquals(CircuitBreaker.OPEN, breaker.getState(0));
+        assertFalse(breaker.allowRequest(999));
+    }
+
+    @Test
+    public void letsOneTrialRequestThroughAfterTheOpenTime() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0, -1);
+
+        assertTrue(breaker.allowRequest(1000));
+        assertFalse(breaker.allowRequest(1001));
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState(1002));
+        assertTrue(breaker.allowRequest(1002));
+    }
+
+    @Test
+    public void opensAgainWhenTheTrialRequestFails() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(0, -1);
+        }
+        assertTrue(breaker.allowRequest(1000));
+
+        breaker.onFailure(1000, -1);
+
+        assertFalse(breaker.allowRequest(1999));
+        assertTrue(breaker.allowRequest(2000));
+    }
+
+    @Test
+    public void staysOpenAsLongAsTheServerAsks() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0, 60000);
+
+        assertFalse(breaker.allowRequest(59999));
+        assertTrue(breaker.allowRequest(60000));
+    }
+
+    @Test
+    public void letsAnotherTrialThroughWhenTheFirstNeverReported() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0, -1);
+        assertTrue(breaker.allowRequest(1000));
+
+        // The trial request was cancelled and never recorded a result
+        assertFalse(breaker.allowRequest(1500));
+        assertTrue(breaker.allowRequest(2000));
+    }
+}
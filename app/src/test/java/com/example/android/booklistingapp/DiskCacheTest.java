@@ -0,0 +1,55 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit tests for the size bounded eviction of {@link DiskCache}.
+ */
+public class DiskCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredBytes() throws Exception {
+        DiskCache cache = new DiskCache(folder.getRoot(), 100);
+        cache.put("http://example.com/a.jpg", new byte[]{1, 2, 3});
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get("http://example.com/a.jpg"));
+        assertNull(cache.get("http://example.com/b.jpg"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedEntries() throws Exception {
+        DiskCache cache = new DiskCache(folder.getRoot(), 100);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        // Touch "a", so "b" becomes the eldest entry
+        cache.get("a");
+        cache.put("c", new byte[40]);
+
+        assertNull(cache.get("b"));
+        assertEquals(40, cache.get("a").length);
+        assertEquals(40, cache.get("c").length);
+        assertEquals(80, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void constructor_reloadsEntriesOfEarlierRun() throws Exception {
+        new DiskCache(folder.getRoot(), 100).put("a", new byte[10]);
+
+        DiskCache cache = new DiskCache(folder.getRoot(), 100);
+
+        assertEquals(10, cache.size());
+        assertEquals(10, cache.get("a").length);
+    }
+}
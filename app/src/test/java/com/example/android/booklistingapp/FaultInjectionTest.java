@@ -0,0 +1,164 @@
+package com.example.android.booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the retries and the circuit breaker of {@link UtilsQuerry} against a
+ * {@link LocalHttpServer} that fails the requests it is told to.
+ */
+public class FaultInjectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalHttpServer mServer;
+
+    // Faults for the next requests, as "status" or "status retry-after"; the requests
+    // after them get the fixture
+    private final LinkedList<String> mFaults = new LinkedList<>();
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    // Times the requests arrived, in milliseconds
+    private final List<Long> mRequestTimes = Collections.synchronizedList(new ArrayList<Long>());
+
+    @Before
+    public void setUp() throws Exception {
+        UtilsQuerry.setRetryPolicy(new RetryPolicy(3, 50, 1500, new Random(7)));
+        UtilsQuerry.setCircuitBreaker(new CircuitBreaker(3, 60000));
+
+        mServer = new LocalHttpServer();
+        mServer.handle("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                mRequestTimes.add(System.currentTimeMillis());
+                String fault;
+                synchronized (mFaults) {
+                    fault = mFaults.poll();
+                }
+                if (fault != null) {
+                    String[] parts = fault.split(" ");
+                    if (parts.length > 1) {
+                        exchange.getResponseHeaders().set("Retry-After", parts[1]);
+                    }
+                    LocalHttpServer.send(exchange, Integer.parseInt(parts[0]), null);
+                    return;
+                }
+                LocalHttpServer.send(exchange, 200, LocalHttpServer.fixture());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        UtilsQuerry.setRetryPolicy(RetryPolicy.defaults());
+        UtilsQuerry.setCircuitBreaker(CircuitBreaker.defaults());
+    }
+
+    @Test
+    public void retriesServerErrorsUntilTheySucceed() {
+        injectFaults("503", "500");
+
+        List<Book> books = UtilsQuerry.fetchBookData(url());
+
+        assertEquals(10, books.size());
+        assertEquals(3, mRequestCount.get());
+    }
+
+    @Test
+    public void givesUpAfterTheLastAttempt() {
+        injectFaults("503", "503", "503", "503");
+
+        assertNull(UtilsQuerry.fetchBookData(url()));
+        assertEquals(3, mRequestCount.get());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        injectFaults("404");
+
+        assertNull(UtilsQuerry.fetchBookData(url()));
+        assertEquals(1, mRequestCount.get());
+    }
+
+    @Test
+    public void waitsAsLongAsRetryAfterAsks() {
+        injectFaults("429 1");
+
+        List<Book> books = UtilsQuerry.fetchBookData(url());
+
+        assertEquals(10, books.size());
+        assertEquals(2, mRequestCount.get());
+        long waited = mRequestTimes.get(1) - mRequestTimes.get(0);
+        assertTrue("Waited " + waited + " ms", waited >= 900);
+    }
+
+    @Test
+    public void doesNotWaitLongerThanTheLongestDelay() {
+        injectFaults("503 120");
+
+        long start = System.currentTimeMillis();
+        assertNull(UtilsQuerry.fetchBookData(url()));
+
+        // Gives up instead of waiting two minutes for the retry
+        assertEquals(1, mRequestCount.get());
+        assertTrue(System.currentTimeMillis() - start < 60000);
+    }
+
+    @Test
+    public void openCircuitServesCachedBooksWithoutRequests() {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 1000000));
+        List<Book> cachedBooks = new ArrayList<>();
+        cachedBooks.add(new Book("cached", "Cached book", new String[0], "", null, "",
+                new String[0], "", ""));
+        // Stale, so it has to be revalidated with the server
+        cache.put("android#0", new QueryCache.Entry(cachedBooks, null, null, 0));
+        injectFaults("503", "503", "503");
+
+        // Three failures in a row open the circuit
+        List<Book> books = UtilsQuerry.fetchBookData(url(), cache, "android#0", true);
+        assertEquals("Cached book", books.get(0).getTitle());
+        assertEquals(3, mRequestCount.get());
+        assertEquals(CircuitBreaker.OPEN,
+                UtilsQuerry.getCircuitBreaker().getState(System.currentTimeMillis()));
+
+        Metrics.Counter rejected = Metrics.getInstance().counter("http.rejected");
+        long rejectedBefore = rejected.get();
+        books = UtilsQuerry.fetchBookData(url(), cache, "android#0", true);
+
+        assertEquals("Cached book", books.get(0).getTitle());
+        assertEquals(3, mRequestCount.get());
+        assertEquals(rejectedBefore + 1, rejected.get());
+    }
+
+    private void injectFaults(String... faults) {
+        synchronized (mFaults) {
+            Collections.addAll(mFaults, faults);
+        }
+    }
+
+    private String url() {
+        return mServer.url("/books");
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link HttpClient} and the search path of {@link UtilsQuerry} against a
+ * {@link LocalHttpServer}.
+ */
+public class HttpClientTest {
+
+    private LocalHttpServer mServer;
+
+    // Client ports of the requests, one per request
+    private final List<Integer> mClientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+
+    // Accept-Encoding headers of the requests
+    private final List<String> mAcceptEncodings = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new LocalHttpServer();
+        mServer.handle("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                record(exchange);
+                byte[] body = LocalHttpServer.fixture();
+                boolean gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                if (gzip) {
+                    body = gzip(body);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                LocalHttpServer.send(exchange, 200, body);
+            }
+        });
+        mServer.handle("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                record(exchange);
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ignored) {
+                }
+                LocalHttpServer.send(exchange, 204, null);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void get_asksForGzipAndUnpacksIt() throws Exception {
+        HttpClient client = new HttpClient(RequestConfig.defaults());
+        HttpClient.Response response = client.get(url("/books"), null, null);
+        byte[] body = LocalHttpServer.readAll(response.getBody());
+        response.close();
+
+        assertEquals(200, response.getResponseCode());
+        assertEquals("gzip", mAcceptEncodings.get(0));
+        assertEquals(LocalHttpServer.fixture().length, body.length);
+    }
+
+    @Test
+    public void get_reusesConnectionAfterClose() throws Exception {
+        HttpClient client = new HttpClient(RequestConfig.defaults());
+        for (int i = 0; i < 3; i++) {
+            HttpClient.Response response = client.get(url("/books"), null, new RequestTiming());
+            LocalHttpServer.readAll(response.getBody());
+            response.close();
+        }
+
+        assertEquals(3, mClientPorts.size());
+        assertEquals(mClientPorts.get(0), mClientPorts.get(1));
+        assertEquals(mClientPorts.get(0), mClientPorts.get(2));
+    }
+
+    @Test
+    public void get_usesConfiguredReadTimeout() throws Exception {
+        HttpClient client = new HttpClient(new RequestConfig(1000, 200, 0));
+        try {
+            client.get(url("/slow"), null, null);
+            fail("Expected a read timeout");
+        } catch (SocketTimeoutException expected) {
+        }
+    }
+
+    @Test
+    public void fetchBookData_parsesCompressedResponse() throws Exception {
+        List<Book> books = UtilsQuerry.fetchBookData(url("/books").toString());
+
+        assertEquals(10, books.size());
+        assertEquals("Android Programming", books.get(0).getTitle());
+    }
+
+    private void record(HttpExchange exchange) {
+        mClientPorts.add(exchange.getRemoteAddress().getPort());
+        mAcceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    private URL url(String path) throws Exception {
+        return new URL(mServer.url(path));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
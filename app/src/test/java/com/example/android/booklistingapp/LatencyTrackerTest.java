@@ -0,0 +1,39 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for the percentiles of {@link LatencyTracker}.
+ */
+public class LatencyTrackerTest {
+
+    @Test
+    public void percentile_usesNearestRank() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(i);
+        }
+
+        assertEquals(50, tracker.percentile(50));
+        assertEquals(95, tracker.percentile(95));
+        assertEquals(100, tracker.percentile(100));
+    }
+
+    @Test
+    public void percentile_onlyLooksAtRecentSamples() {
+        LatencyTracker tracker = new LatencyTracker(2);
+        tracker.record(2000);
+        tracker.record(10);
+        tracker.record(20);
+
+        assertEquals(20, tracker.percentile(95));
+        assertEquals(3, tracker.count());
+    }
+
+    @Test
+    public void percentile_isZeroWithoutSamples() {
+        assertEquals(0, new LatencyTracker(10).percentile(50));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.android.booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server for the tests, on a free port of 127.0.0.1, that every test with a
+ * server builds on.
+ * <p>
+ * The tests add a handler for each path they serve. Requests are handled on a pool of
+ * threads, so a slow request doesn't hold up the others.
+ */
+public class LocalHttpServer {
+
+    // Recorded Google Books API response of ten books
+    static final String FIXTURE = "books_android.json";
+
+    private final HttpServer mServer;
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * Start a server on a free local port, without any handler yet.
+     */
+    public LocalHttpServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    /**
+     * Handle the requests for the path and everything under it.
+     */
+    public void handle(String path, HttpHandler handler) {
+        mServer.createContext(path, handler);
+    }
+
+    /**
+     * Handle the requests for the path with the recorded response of {@link #FIXTURE}.
+     */
+    public void serveFixture(String path) {
+        handle(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                send(exchange, 200, fixture());
+            }
+        });
+    }
+
+    /**
+     * Returns the URL of the path on this server.
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + path;
+    }
+
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Answer the request with the status and the body, or without a body when it is null.
+     */
+    static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    /**
+     * Returns the bytes of the recorded response.
+     */
+    static byte[] fixture() throws IOException {
+        return resource(FIXTURE);
+    }
+
+    /**
+     * Returns the bytes of a file of the test resources.
+     */
+    static byte[] resource(String name) throws IOException {
+        return readAll(LocalHttpServer.class.getClassLoader().getResourceAsStream(name));
+    }
+
+    /**
+     * Read the stream to its end and close it.
+     */
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.booklistingapp;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link Metrics} registry and its dump and export formats.
+ */
+public class MetricsTest {
+
+    private final Metrics metrics = Metrics.getInstance();
+
+    @Before
+    public void setUp() {
+        metrics.clear();
+    }
+
+    @Test
+    public void metrics_areCreatedOnceByName() {
+        assertSame(metrics.counter("http.requests"), metrics.counter("http.requests"));
+        assertSame(metrics.timer("adapter.bind"), metrics.timer("adapter.bind"));
+        assertEquals("us", metrics.timer("adapter.bind").getUnit());
+    }
+
+    @Test
+    public void sections_recordTheirDuration() throws Exception {
+        long start = metrics.beginSection("cover.decode");
+        Thread.sleep(5);
+        metrics.endSection("cover.decode", start);
+
+        assertEquals(1, metrics.timer("cover.decode").count());
+        assertTrue(metrics.timer("cover.decode").percentile(50) >= 5000);
+    }
+
+    @Test
+    public void dump_listsEveryMetricByName() {
+        metrics.counter("cover.memory_miss").increment();
+        metrics.counter("cover.memory_hit").add(3);
+        metrics.histogram("search.items", "books").record(20);
+
+        assertEquals("cover.memory_hit: 3\n"
+                + "cover.memory_miss: 1\n"
+                + "search.items: p50=20books p95=20books n=1\n", metrics.dump());
+    }
+
+    @Test
+    public void export_isJson() throws Exception {
+        metrics.counter("http.requests").add(2);
+        for (int i = 1; i <= 100; i++) {
+            metrics.timer("search.parse").record(i);
+        }
+
+        JSONObject json = new JSONObject(metrics.export());
+
+        assertEquals(2, json.getJSONObject("counters").getLong("http.requests"));
+        JSONObject parse = json.getJSONObject("histograms").getJSONObject("search.parse");
+        assertEquals("us", parse.getString("unit"));
+        assertEquals(100, parse.getLong("count"));
+        assertEquals(50, parse.getLong("p50"));
+        assertEquals(99, parse.getLong("p99"));
+        assertEquals(100, parse.getLong("max"));
+    }
+}
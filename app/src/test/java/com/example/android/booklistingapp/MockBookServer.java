@@ -0,0 +1,185 @@
+package com.example.android.booklistingapp;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link LocalHttpServer} that answers search requests like the Google Books API, for
+ * the tests and the load tests of the {@link BookSource}s.
+ * <p>
+ * Every page has as many generated books as it is asked for, with ids made of the search
+ * word and the index of the result. The server can wait before it answers, fail a share of
+ * the requests, send long descriptions to make large responses, and compress them.
+ */
+public class MockBookServer {
+
+    // Path of the search requests, the base URL ends with it
+    private static final String PATH = "/books/v1/volumes";
+
+    // Publishers and categories of the generated books, they repeat like in real results
+    private static final int PUBLISHER_COUNT = 10;
+    private static final int CATEGORY_COUNT = 5;
+
+    private final LocalHttpServer mServer;
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    // Time to wait before answering, in milliseconds
+    private volatile long mLatency;
+
+    // Share of the requests that fail, and the status they fail with
+    private volatile double mFaultRate;
+    private volatile int mFaultStatus = 503;
+
+    // Length of the description of every book, in chars
+    private volatile int mDescriptionLength = 100;
+
+    // True to gzip the pages for the clients that accept it
+    private volatile boolean mGzip;
+
+    /**
+     * Start a server on a free local port.
+     */
+    public MockBookServer() throws IOException {
+        mServer = new LocalHttpServer();
+        mServer.handle(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+    }
+
+    /**
+     * Returns the URL the search word is added to, like {@link BookQuery#BOOK_URL_BASE}.
+     */
+    public String getBaseUrl() {
+        return mServer.url(PATH + "?q=");
+    }
+
+    public void setLatency(long milliseconds) {
+        mLatency = milliseconds;
+    }
+
+    /**
+     * Fail the given share of the requests with the status. The failures are spread evenly,
+     * e.g. every 20th request for 0.05, so the tests give the same result every time.
+     */
+    public void setFaults(double rate, int status) {
+        mFaultRate = rate;
+        mFaultStatus = status;
+    }
+
+    public void setDescriptionLength(int length) {
+        mDescriptionLength = length;
+    }
+
+    public void setGzip(boolean gzip) {
+        mGzip = gzip;
+    }
+
+    /**
+     * Returns the number of requests the server received, the failed ones included.
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public void stop() {
+        mServer.stop();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        int request = mRequestCount.getAndIncrement();
+        try {
+            if (mLatency > 0) {
+                Thread.sleep(mLatency);
+            }
+        } catch (InterruptedException e) {
+            exchange.close();
+            return;
+        }
+        double faultRate = mFaultRate;
+        if ((int) ((request + 1) * faultRate) > (int) (request * faultRate)) {
+            LocalHttpServer.send(exchange, mFaultStatus, null);
+            return;
+        }
+
+        Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+        String searchWord = parameters.containsKey("q") ? parameters.get("q") : "";
+        int startIndex = parameters.containsKey("startIndex") ? Integer.parseInt(parameters.get("startIndex")) : 0;
+        int maxResults = parameters.containsKey("maxResults") ? Integer.parseInt(parameters.get("maxResults")) : 10;
+        byte[] body = page(searchWord, startIndex, maxResults);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (mGzip && "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream out = new GZIPOutputStream(compressed);
+            out.write(body);
+            out.close();
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        LocalHttpServer.send(exchange, 200, body);
+    }
+
+    private byte[] page(String searchWord, int startIndex, int maxResults) throws IOException {
+        StringBuilder description = new StringBuilder(mDescriptionLength);
+        while (description.length() < mDescriptionLength) {
+            description.append("A book about ").append(searchWord).append(". ");
+        }
+        description.setLength(mDescriptionLength);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, "UTF-8"));
+        writer.beginObject();
+        writer.name("kind").value("books#volumes");
+        writer.name("items").beginArray();
+        for (int index = startIndex; index < startIndex + maxResults; index++) {
+            writer.beginObject();
+            writer.name("id").value(searchWord + "-" + index);
+            writer.name("volumeInfo").beginObject();
+            writer.name("title").value("Book " + index + " about " + searchWord);
+            writer.name("authors").beginArray().value("Author " + index).value("Second Author").endArray();
+            writer.name("publisher").value("Publisher " + index % PUBLISHER_COUNT);
+            writer.name("publishedDate").value(String.valueOf(1990 + index % 30));
+            writer.name("description").value(description.toString());
+            writer.name("categories").beginArray().value("Category " + index % CATEGORY_COUNT).endArray();
+            writer.name("imageLinks").beginObject()
+                    .name("smallThumbnail").value("http://127.0.0.1/covers/" + index)
+                    .endObject();
+            writer.name("infoLink").value("http://127.0.0.1/books/" + searchWord + "-" + index);
+            writer.endObject();
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, String> parameters(String query) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(parameter.substring(0, equals),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.android.booklistingapp;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link ParallelBookParser}, against the sequential
+ * {@link BookStreamParser}.
+ */
+public class ParallelBookParserTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(3);
+
+    private final ParallelBookParser mParser = new ParallelBookParser(mExecutor, 4);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void parse_keepsTheOrderOfALargeResponse() throws Exception {
+        String response = response(1000);
+
+        List<Book> expected = BookStreamParser.parse(new ByteArrayInputStream(response.getBytes("UTF-8")));
+        List<Book> books = mParser.parse(response);
+
+        assertEquals(1000, books.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(expected.get(i).getId(), books.get(i).getId());
+            assertTrue(expected.get(i).hasSameContents(books.get(i)));
+        }
+        assertEquals("id-999", books.get(999).getId());
+    }
+
+    @Test
+    public void parse_smallResponsesAreParsedAsAWhole() throws Exception {
+        List<Book> books = mParser.parse(readFixture());
+
+        assertEquals(10, books.size());
+        assertEquals("Android Programming", books.get(0).getTitle());
+    }
+
+    @Test
+    public void parse_readsOnlyTheTextOfTheBuffer() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        byte[] large = response(1000).getBytes("UTF-8");
+        buffer.read(new ByteArrayInputStream(large), large.length);
+        assertEquals(1000, mParser.parse(buffer).size());
+
+        // The array is kept, and is longer than the next response
+        byte[] small = response(300).getBytes("UTF-8");
+        buffer.read(new ByteArrayInputStream(small), -1);
+        List<Book> books = mParser.parse(buffer);
+
+        assertEquals(300, books.size());
+        assertEquals("id-299", books.get(299).getId());
+    }
+
+    @Test
+    public void scan_findsTheItemsPastTrickyStrings() {
+        char[] text = ("{\"kind\": \"a } ] \\\" [ {\", \"n\": [1, {\"x\": \"]\"}], \"items\" :"
+                + " [ {\"id\": \"a\"} , \"s,]\" ,12,{\"id\":\"b\",\"v\":[{}]} ]}").toCharArray();
+
+        int[] bounds = ParallelBookParser.ItemScanner.scan(text, text.length);
+
+        assertEquals(8, bounds.length);
+        assertEquals("{\"id\": \"a\"}", new String(text, bounds[0], bounds[1] - bounds[0]));
+        assertEquals("\"s,]\"", new String(text, bounds[2], bounds[3] - bounds[2]));
+        assertEquals("12", new String(text, bounds[4], bounds[5] - bounds[4]));
+        assertEquals("{\"id\":\"b\",\"v\":[{}]}", new String(text, bounds[6], bounds[7] - bounds[6]));
+    }
+
+    @Test
+    public void scan_givesUpOnResponsesItDoesNotUnderstand() {
+        assertNull(scan("{\"kind\": \"books#volumes\"}"));
+        assertNull(scan("[{\"items\": []}]"));
+        assertNull(scan("{\"items\": [{\"id\": \"a\""));
+        assertArrayEquals(new int[0], scan("{\"items\": [ ]}"));
+    }
+
+    @Test
+    public void parse_fallsBackToTheStreamParser() throws Exception {
+        // Not something the scanner reads, but the lenient stream parser does
+        List<Book> books = mParser.parse("{'items': [{'volumeInfo': {'title': 'Lenient'}}]}");
+
+        assertEquals(1, books.size());
+        assertEquals("Lenient", books.get(0).getTitle());
+    }
+
+    private static int[] scan(String text) {
+        return ParallelBookParser.ItemScanner.scan(text.toCharArray(), text.length());
+    }
+
+    /**
+     * Return a response with the given number of items, copies of the recorded ones with
+     * ids "id-0", "id-1" and so on.
+     */
+    private String response(int itemCount) throws IOException {
+        // Gson keeps the order of the names, the id comes before the volumeInfo like in
+        // the responses of the API
+        JsonObject response = new JsonParser().parse(readFixture()).getAsJsonObject();
+        JsonArray recorded = response.getAsJsonArray("items");
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < itemCount; i++) {
+            JsonObject item = new JsonParser().parse(recorded.get(i % recorded.size()).toString())
+                    .getAsJsonObject();
+            item.addProperty("id", "id-" + i);
+            items.add(item);
+        }
+        response.add("items", items);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(response);
+    }
+
+    private String readFixture() throws IOException {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("books_android.json");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares a recorded full Google Books response with the partial response of the same
+ * query that {@link BookQuery#FIELDS} asks for.
+ */
+public class PartialResponseTest {
+
+    private static final String FULL_RESPONSE = LocalHttpServer.FIXTURE;
+    private static final String PARTIAL_RESPONSE = "books_android_fields.json";
+
+    @Test
+    public void partialResponse_isMuchSmaller() throws Exception {
+        byte[] full = LocalHttpServer.resource(FULL_RESPONSE);
+        byte[] partial = LocalHttpServer.resource(PARTIAL_RESPONSE);
+
+        System.out.println("Full response: " + full.length + " bytes, partial response: "
+                + partial.length + " bytes");
+        assertTrue("Partial response should be less than a third of the full one",
+                partial.length * 3 < full.length);
+    }
+
+    @Test
+    public void partialResponse_givesSameBooks() throws Exception {
+        byte[] partialResponse = LocalHttpServer.resource(PARTIAL_RESPONSE);
+        List<Book> full = BookStreamParser.parse(new ByteArrayInputStream(LocalHttpServer.fixture()));
+        List<Book> partial = BookStreamParser.parse(new ByteArrayInputStream(partialResponse));
+        List<Book> partialDom = BookJsonParser.parse(new String(partialResponse, "UTF-8"));
+
+        assertEquals(full.size(), partial.size());
+        assertEquals(full.size(), partialDom.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.get(i).getId(), partial.get(i).getId());
+            assertTrue(full.get(i).hasSameContents(partial.get(i)));
+            assertEquals(full.get(i).getId(), partialDom.get(i).getId());
+            assertTrue(full.get(i).hasSameContents(partialDom.get(i)));
+        }
+    }
+
+    @Test
+    public void pageUrl_asksForEveryFieldTheParserReads() {
+        String url = BookQuery.pageUrl("android", 20, 20);
+
+        assertTrue(url.contains("startIndex=20"));
+        assertTrue(url.contains("maxResults=20"));
+        for (String field : new String[]{"id", "title", "authors", "publisher", "publishedDate",
+                "description", "categories", "imageLinks/smallThumbnail", "infoLink"}) {
+            assertTrue(field, url.contains(field));
+        }
+    }
+
+    @Test
+    public void pageUrl_encodesTheSearchWord() {
+        assertTrue(BookQuery.pageUrl("c++ & caf\u00e9", 0, 20)
+                .startsWith(BookQuery.BOOK_URL_BASE + "c%2B%2B+%26+caf%C3%A9&startIndex=0"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for the persistence and freshness of {@link QueryCache} entries.
+ */
+public class QueryCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void key_normalizesQuery() {
+        String url = BookQuery.BOOK_URL_BASE;
+        assertEquals(QueryCache.key(url, "android", 0), QueryCache.key(url, "  Android ", 0));
+        assertFalse(QueryCache.key(url, "android", 0).equals(QueryCache.key(url, "android", 10)));
+        // The same search on another server
+        assertFalse(QueryCache.key(url, "android", 0).equals(
+                QueryCache.key("http://127.0.0.1/books/v1/volumes?q=", "android", 0)));
+    }
+
+    @Test
+    public void get_returnsStoredEntry() throws Exception {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 100000));
+        List<Book> books = new ArrayList<>();
+        books.add(new Book("zq1aBQAAQBAJ", "Android", new String[]{"First Author", "Second Author"},
+                "Publisher", null, "2017", new String[0], "Line one\nline two", ""));
+        cache.put("android#0", new QueryCache.Entry(books, "\"etag\"", null, 1000));
+
+        QueryCache.Entry entry = cache.get("android#0");
+
+        assertEquals("\"etag\"", entry.getETag());
+        assertNull(entry.getLastModified());
+        assertEquals(1000, entry.getStoredAt());
+        assertEquals(1, entry.getBooks().size());
+        Book book = entry.getBooks().get(0);
+        assertEquals("zq1aBQAAQBAJ", book.getId());
+        assertEquals("Android", book.getTitle());
+        assertArrayEquals(new String[]{"First Author", "Second Author"}, book.getAuthors());
+        assertEquals(0, book.getCategoryList().length);
+        assertNull(book.getUrl());
+        assertEquals("Line one\nline two", book.getDescription());
+        assertNull(cache.get("kotlin#0"));
+    }
+
+    @Test
+    public void getAllBooks_returnsTheBooksOfEveryEntry() {
+        QueryCache cache = new QueryCache(new DiskCache(folder.getRoot(), 100000));
+        for (int page = 0; page < 3; page++) {
+            List<Book> books = new ArrayList<>();
+            books.add(new Book("volume" + page, "Book " + page, new String[0], "", null, "",
+                    new String[0], "", ""));
+            cache.put(QueryCache.key(BookQuery.BOOK_URL_BASE, "android", page * 20), new QueryCache.Entry(books, null, null, 0));
+        }
+
+        assertEquals(3, cache.getAllBooks().size());
+    }
+
+    @Test
+    public void entry_becomesStaleAfterTimeToLive() {
+        QueryCache.Entry entry = new QueryCache.Entry(new ArrayList<Book>(), null, null, 0);
+
+        assertTrue(entry.isFresh(QueryCache.TIME_TO_LIVE - 1));
+        assertFalse(entry.isFresh(QueryCache.TIME_TO_LIVE));
+        assertTrue(entry.revalidated(QueryCache.TIME_TO_LIVE).isFresh(QueryCache.TIME_TO_LIVE));
+    }
+}
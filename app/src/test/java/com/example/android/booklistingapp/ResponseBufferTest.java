@@ -0,0 +1,136 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests for {@link ResponseBuffer}.
+ */
+public class ResponseBufferTest {
+
+    // Line breaks, a two byte, a three byte and a four byte UTF-8 sequence
+    private static final String TEXT = "{\"title\": \"Android f\u00fcr Einsteiger\",\r\n"
+            + "  \"description\": \"\u2603 \ud83d\udcda\"\n}\n";
+
+    @Test
+    public void read_keepsTheTextExactly() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        byte[] body = TEXT.getBytes("UTF-8");
+
+        buffer.read(new ByteArrayInputStream(body), body.length);
+
+        assertEquals(TEXT, buffer.toString());
+        assertEquals(TEXT, buffer.chars().toString());
+        assertEquals(TEXT.length(), buffer.length());
+        assertEquals(body.length, buffer.byteCount());
+        assertEquals(TEXT, readAll(buffer.reader()));
+    }
+
+    @Test
+    public void read_worksWithAWrongOrMissingLength() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        byte[] body = TEXT.getBytes("UTF-8");
+
+        for (int contentLength : new int[]{-1, 0, 1, body.length - 1, body.length * 10}) {
+            buffer.read(new ByteArrayInputStream(body), contentLength);
+            assertEquals(String.valueOf(contentLength), TEXT, buffer.toString());
+        }
+    }
+
+    @Test
+    public void read_decodesCharactersSplitAcrossReads() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+
+        // Hands out one byte per read, so every multi byte character is split
+        buffer.read(new OneByteInputStream(TEXT.getBytes("UTF-8")), -1);
+
+        assertEquals(TEXT, buffer.toString());
+    }
+
+    @Test
+    public void read_decodesABodyOfManyChunks() throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 100 * 1024) {
+            text.append(TEXT);
+        }
+        byte[] body = text.toString().getBytes("UTF-8");
+
+        // Unknown length, like a compressed body: the chars grow past their default size
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.read(new ByteArrayInputStream(body), -1);
+
+        assertEquals(text.toString(), buffer.toString());
+        assertEquals(body.length, buffer.byteCount());
+    }
+
+    @Test
+    public void read_replacesTheTextOfTheLastResponse() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.read(new ByteArrayInputStream(TEXT.getBytes("UTF-8")), -1);
+
+        buffer.read(new ByteArrayInputStream("{}".getBytes("UTF-8")), 2);
+
+        assertEquals("{}", buffer.toString());
+    }
+
+    @Test
+    public void clear_dropsLargeArrays() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        byte[] large = new byte[ResponseBuffer.MAX_RETAINED_SIZE + 1];
+        Arrays.fill(large, (byte) ' ');
+        buffer.read(new ByteArrayInputStream(large), large.length);
+        assertEquals(large.length, buffer.length());
+
+        buffer.clear();
+
+        assertEquals(0, buffer.length());
+        buffer.read(new ByteArrayInputStream("[]".getBytes("UTF-8")), -1);
+        assertEquals("[]", buffer.toString());
+    }
+
+    @Test
+    public void readFromStream_keepsLineBreaks() throws Exception {
+        String json = BookJsonParser.readFromStream(new ByteArrayInputStream(TEXT.getBytes("UTF-8")));
+
+        assertEquals(TEXT, json);
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            text.append((char) c);
+        }
+        return text.toString();
+    }
+
+    private static class OneByteInputStream extends InputStream {
+        private final byte[] mBytes;
+        private int mPosition;
+
+        OneByteInputStream(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            return mPosition < mBytes.length ? mBytes[mPosition++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (mPosition == mBytes.length) {
+                return -1;
+            }
+            buffer[offset] = mBytes[mPosition++];
+            return 1;
+        }
+    }
+}
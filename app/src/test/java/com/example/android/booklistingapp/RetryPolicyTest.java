@@ -0,0 +1,70 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void isRetryable_onlyForBusyOrBrokenServers() {
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(500));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertFalse(RetryPolicy.isRetryable(200));
+        assertFalse(RetryPolicy.isRetryable(304));
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(404));
+    }
+
+    @Test
+    public void delayBeforeRetry_growsUpToTheLongestDelay() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, new Random(1));
+        for (int i = 0; i < 1000; i++) {
+            assertInRange(policy.delayBeforeRetry(1, -1), 0, 100);
+            assertInRange(policy.delayBeforeRetry(2, -1), 0, 200);
+            assertInRange(policy.delayBeforeRetry(3, -1), 0, 400);
+            assertInRange(policy.delayBeforeRetry(9, -1), 0, 1000);
+        }
+    }
+
+    @Test
+    public void delayBeforeRetry_stopsAfterTheLastAttempt() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, new Random(1));
+
+        assertTrue(policy.delayBeforeRetry(2, -1) >= 0);
+        assertEquals(-1, policy.delayBeforeRetry(3, -1));
+    }
+
+    @Test
+    public void delayBeforeRetry_waitsAsLongAsTheServerAsks() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, new Random(1));
+
+        assertEquals(800, policy.delayBeforeRetry(1, 800));
+        // Waiting longer than the longest delay is not worth it
+        assertEquals(-1, policy.delayBeforeRetry(1, 5000));
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndDates() {
+        long now = 784111777000L - 2000;
+
+        assertEquals(120000, RetryPolicy.parseRetryAfter("120", now));
+        assertEquals(2000, RetryPolicy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", now));
+        assertEquals(0, RetryPolicy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", now + 60000));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null, now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("-5", now));
+    }
+
+    private static void assertInRange(long value, long min, long max) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
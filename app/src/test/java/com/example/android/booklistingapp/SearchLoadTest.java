@@ -0,0 +1,120 @@
+package com.example.android.booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Load test of the whole search path, request, retries and parser, against a local
+ * {@link MockBookServer} that is slow and fails some of the requests.
+ * <p>
+ * Several clients search at the same time, every search for a word of its own so no
+ * request is shared, and the throughput and the latency of the searches are printed.
+ * The defaults keep the test short; a real load is set with system properties:
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest --tests '*SearchLoadTest' -Dloadtest.clients=32 \
+ *         -Dloadtest.searches=200 -Dloadtest.latency=50 -Dloadtest.faultRate=0.02 \
+ *         -Dloadtest.pageSize=40 -Dloadtest.descriptionLength=2000
+ * </pre>
+ */
+public class SearchLoadTest {
+
+    private final int mClients = Integer.getInteger("loadtest.clients", 4);
+
+    // Searches of every client
+    private final int mSearches = Integer.getInteger("loadtest.searches", 25);
+
+    // Time the server waits before it answers, in milliseconds
+    private final int mLatency = Integer.getInteger("loadtest.latency", 20);
+
+    private final double mFaultRate = Double.parseDouble(System.getProperty("loadtest.faultRate", "0.05"));
+
+    private final int mPageSize = Integer.getInteger("loadtest.pageSize", BookPager.PAGE_SIZE);
+
+    private final int mDescriptionLength = Integer.getInteger("loadtest.descriptionLength", 500);
+
+    private MockBookServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        // Short pauses, and a breaker that stays closed for the spread out faults
+        UtilsQuerry.setRetryPolicy(new RetryPolicy(3, 10, 100, new Random(7)));
+        UtilsQuerry.setCircuitBreaker(new CircuitBreaker(mClients * 3, 1000));
+        Metrics.getInstance().clear();
+        mServer = new MockBookServer();
+        mServer.setLatency(mLatency);
+        mServer.setFaults(mFaultRate, 503);
+        mServer.setDescriptionLength(mDescriptionLength);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        UtilsQuerry.setRetryPolicy(RetryPolicy.defaults());
+        UtilsQuerry.setCircuitBreaker(CircuitBreaker.defaults());
+    }
+
+    @Test
+    public void search_underLoad() throws Exception {
+        final BookSource source = new HttpBookSource(mServer.getBaseUrl(), null);
+        final LatencyTracker latency = new LatencyTracker(mClients * mSearches);
+        final AtomicInteger failed = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(mClients);
+
+        long start = System.nanoTime();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int client = 0; client < mClients; client++) {
+            final int clientNumber = client;
+            results.add(clients.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int books = 0;
+                    for (int search = 0; search < mSearches; search++) {
+                        long searchStart = System.nanoTime();
+                        List<Book> page = source.fetchPage("load" + clientNumber + "x" + search, 0,
+                                mPageSize, true);
+                        latency.record((System.nanoTime() - searchStart) / 1000000);
+                        if (page == null) {
+                            failed.incrementAndGet();
+                        } else {
+                            books += page.size();
+                        }
+                    }
+                    return books;
+                }
+            }));
+        }
+        int books = 0;
+        for (Future<Integer> result : results) {
+            books += result.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        clients.shutdown();
+
+        int searches = mClients * mSearches;
+        System.out.println(String.format(Locale.US,
+                "Load test: %d clients x %d searches of %d books, %d ms latency, %.0f%% faults: "
+                        + "%.1f searches/s, latency p50=%dms p95=%dms p99=%dms, %d failed, "
+                        + "%d requests, %d retries",
+                mClients, mSearches, mPageSize, mLatency, mFaultRate * 100,
+                searches * 1e9 / elapsedNanos, latency.percentile(50), latency.percentile(95),
+                latency.percentile(99), failed.get(), mServer.getRequestCount(),
+                Metrics.getInstance().counter("http.retries").get()));
+
+        // The faults are spread out, so every search succeeds after its retries
+        assertEquals(0, failed.get());
+        assertEquals(searches * mPageSize, books);
+    }
+}
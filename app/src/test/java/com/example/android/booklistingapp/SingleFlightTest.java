@@ -0,0 +1,158 @@
+package com.example.android.booklistingapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Local unit tests of {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void execute_sharesTheLoadInFlight() throws Exception {
+        final SingleFlight<String> flights = new SingleFlight<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final SingleFlight.Loader<String> loader = new SingleFlight.Loader<String>() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                await(release);
+                return new String("result");
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] results = new Future<?>[8];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return flights.execute("android#0", loader);
+                    }
+                });
+            }
+            // Let every thread reach the load before it finishes
+            Thread.sleep(200);
+            release.countDown();
+
+            Object first = results[0].get(5, TimeUnit.SECONDS);
+            for (Future<?> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flights.loadCount());
+        assertEquals(7, flights.sharedCount());
+    }
+
+    @Test
+    public void execute_loadsAgainOnceTheLoadIsDone() throws Exception {
+        SingleFlight<Integer> flights = new SingleFlight<>();
+        final AtomicInteger loads = new AtomicInteger();
+        SingleFlight.Loader<Integer> loader = new SingleFlight.Loader<Integer>() {
+            @Override
+            public Integer load() {
+                return loads.incrementAndGet();
+            }
+        };
+
+        assertEquals(1, (int) flights.execute("a", loader));
+        assertEquals(2, (int) flights.execute("a", loader));
+        assertEquals(3, (int) flights.execute("b", loader));
+        assertEquals(0, flights.sharedCount());
+    }
+
+    @Test
+    public void execute_retriesWhenTheLoadWasCancelled() throws Exception {
+        final SingleFlight<String> flights = new SingleFlight<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final SingleFlight.Loader<String> loader = new SingleFlight.Loader<String>() {
+            @Override
+            public String load() {
+                if (loads.incrementAndGet() > 1) {
+                    return "complete";
+                }
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    // Like a cancelled search, give up with no result
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> cancelled = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return flights.execute("key", loader);
+                }
+            });
+            started.await();
+            Future<String> waiting = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return flights.execute("key", loader);
+                }
+            });
+            Thread.sleep(200);
+            cancelled.cancel(true);
+
+            assertEquals("complete", waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void execute_passesFailuresToEveryCaller() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        try {
+            flights.execute("key", new SingleFlight.Loader<String>() {
+                @Override
+                public String load() {
+                    throw new IllegalStateException("broken");
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // Nothing is left behind for the next call
+        assertNull(flights.execute("key", new SingleFlight.Loader<String>() {
+            @Override
+            public String load() {
+                return null;
+            }
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
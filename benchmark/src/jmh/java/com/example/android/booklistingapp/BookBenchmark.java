@@ -0,0 +1,51 @@
+package com.example.android.booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Builds the {@link Book}s of a recorded response, and the display text of a row.
+ */
+@State(Scope.Benchmark)
+public class BookBenchmark {
+
+    private List<Book> mBooks;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBooks = BookStreamParser.parse(new ByteArrayInputStream(Fixtures.response(10)));
+    }
+
+    /**
+     * Build the books again from their values, with the interning of the repeated strings.
+     */
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        for (Book book : mBooks) {
+            blackhole.consume(new Book(book.getId(), book.getTitle(), book.getAuthors(),
+                    book.getPublisher(), book.getUrl(), book.getPublishedDate(),
+                    book.getCategoryList(), book.getDescription(), book.getmThumbnailLink()));
+        }
+    }
+
+    /**
+     * Build new books and format the author and category text a row shows.
+     */
+    @Benchmark
+    public void constructAndFormat(Blackhole blackhole) {
+        for (Book book : mBooks) {
+            Book copy = new Book(book.getId(), book.getTitle(), book.getAuthors(),
+                    book.getPublisher(), book.getUrl(), book.getPublishedDate(),
+                    book.getCategoryList(), book.getDescription(), book.getmThumbnailLink());
+            blackhole.consume(copy.getBookAuthor());
+            blackhole.consume(copy.getCategories());
+        }
+    }
+}
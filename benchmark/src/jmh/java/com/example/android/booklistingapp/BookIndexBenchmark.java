@@ -0,0 +1,190 @@
+package com.example.android.booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Searches the {@link BookIndex} of the device, filled with the given number of books, and
+ * adds pages of new books to it. Past {@link BookIndex#MAX_BOOKS} books the index is built
+ * with a larger limit, to see how the search scales.
+ * <p>
+ * The books are made up, with a vocabulary shaped like real text: the words of the recorded
+ * responses are the common ones, and made up words make a long tail of 20000 words in all.
+ * Words are picked by a Zipf distribution, so a few words are in most books and most words
+ * in only a few.
+ */
+@State(Scope.Benchmark)
+public class BookIndexBenchmark {
+
+    // Number of different words of the made up books
+    private static final int VOCABULARY_SIZE = 20000;
+
+    private static final String[] SYLLABLES = {"an", "dro", "ka", "lin", "to", "mer", "sa",
+            "vi", "no", "rel", "ta", "gon", "pi", "qua", "zor", "el", "ux", "bri", "fen", "mo"};
+
+    @Param({"2000", "10000", "20000", "100000"})
+    public int books;
+
+    private BookIndex mIndex;
+
+    private String[] mQueries;
+
+    // Next query of search(), and the next page of addPage()
+    private int mNextQuery;
+    private int mNextPage;
+
+    private Random mRandom;
+    private String[] mVocabulary;
+    private double[] mCumulative;
+
+    @Setup
+    public void setUp() throws IOException {
+        mRandom = new Random(42);
+        mVocabulary = vocabulary();
+        mCumulative = zipf(mVocabulary.length);
+        mIndex = new BookIndex(Math.max(books, BookIndex.MAX_BOOKS));
+        mIndex.addAll(books(0, books));
+
+        // Common and rare words, prefixes and several words, like the typed queries
+        List<String> queries = new ArrayList<>();
+        queries.add("android");
+        queries.add("and");
+        queries.add("kot");
+        queries.add("programming guide");
+        queries.add("o reilly");
+        queries.add("a");
+        for (int i = 0; i < 10; i++) {
+            queries.add(word());
+            queries.add(word().substring(0, 3));
+            queries.add(word() + " " + word());
+            queries.add(mVocabulary[mVocabulary.length - 1 - mRandom.nextInt(1000)]);
+        }
+        mQueries = queries.toArray(new String[queries.size()]);
+    }
+
+    @Benchmark
+    public List<Book> search() {
+        String query = mQueries[mNextQuery];
+        mNextQuery = (mNextQuery + 1) % mQueries.length;
+        return mIndex.search(query, BookPager.PAGE_SIZE);
+    }
+
+    /**
+     * Add a page of books that are not in the index yet, the oldest are dropped once it
+     * is full.
+     */
+    @Benchmark
+    public BookIndex addPage(Page page) {
+        mIndex.addAll(page.mBooks);
+        return mIndex;
+    }
+
+    /**
+     * The page of new books of the next {@link #addPage(Page)}, made up before it is timed.
+     */
+    @State(Scope.Thread)
+    public static class Page {
+        List<Book> mBooks;
+
+        @Setup(Level.Invocation)
+        public void setUp(BookIndexBenchmark benchmark) {
+            mBooks = benchmark.books(benchmark.books + benchmark.mNextPage * BookPager.PAGE_SIZE,
+                    BookPager.PAGE_SIZE);
+            benchmark.mNextPage++;
+        }
+    }
+
+    private List<Book> books(int first, int count) {
+        List<Book> result = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            String title = text(3 + mRandom.nextInt(5));
+            String[] authors = {capitalized(word()) + " " + capitalized(word())};
+            String publisher = capitalized(mVocabulary[mRandom.nextInt(50)]) + " Press";
+            String[] categories = {"Computers / " + capitalized(mVocabulary[mRandom.nextInt(30)])};
+            result.add(new Book("volume" + i, title, authors, publisher, "https://example.com/" + i,
+                    "2017", categories, text(80 + mRandom.nextInt(80)), ""));
+        }
+        return result;
+    }
+
+    private String text(int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Return a word of the vocabulary, the common ones more often.
+     */
+    private String word() {
+        double value = mRandom.nextDouble();
+        int low = 0;
+        int high = mCumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mCumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return mVocabulary[low];
+    }
+
+    /**
+     * The words of the recorded response, most frequent first in the order they appear,
+     * followed by made up words.
+     */
+    private String[] vocabulary() throws IOException {
+        Set<String> words = new LinkedHashSet<>();
+        for (Book book : BookStreamParser.parse(new ByteArrayInputStream(Fixtures.response(10)))) {
+            words.addAll(BookIndex.words(book.getTitle(), 2));
+            words.addAll(BookIndex.words(book.getDescription(), 2));
+        }
+        while (words.size() < VOCABULARY_SIZE) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 2 + mRandom.nextInt(3); i > 0; i--) {
+                word.append(SYLLABLES[mRandom.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    /**
+     * Cumulative probabilities of the ranks of a Zipf distribution with exponent 1.
+     */
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1.0 / rank;
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static String capitalized(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.android.booklistingapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Google Books responses the benchmarks parse.
+ * <p>
+ * The response of 10 books is the recorded one of the unit tests. Larger responses repeat
+ * its items, every copy with its own volume id, like later pages of the same search.
+ */
+final class Fixtures {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Recorded response of the query "android", 10 items
+    private static final String RECORDED_RESPONSE = "books_android.json";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Return a full (not partial) Google Books response with the given number of items,
+     * as UTF-8 bytes.
+     */
+    static byte[] response(int itemCount) throws IOException {
+        byte[] recorded = readResource(RECORDED_RESPONSE);
+        JsonObject response = new JsonParser().parse(new String(recorded, UTF_8)).getAsJsonObject();
+        JsonArray recordedItems = response.getAsJsonArray("items");
+        if (itemCount == recordedItems.size()) {
+            return recorded;
+        }
+
+        Gson gson = new Gson();
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < itemCount; i++) {
+            JsonElement original = recordedItems.get(i % recordedItems.size());
+            // A copy of the item, through its JSON text
+            JsonObject item = new JsonParser().parse(gson.toJson(original)).getAsJsonObject();
+            item.addProperty("id", item.get("id").getAsString() + "-" + i);
+            items.add(item);
+        }
+        response.add("items", items);
+        return gson.toJson(response).getBytes(UTF_8);
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing resource " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parses large responses that are already in memory with the {@link ParallelBookParser},
+ * on 1 to 8 threads, to show how it scales with the number of cores. The sequential
+ * stream parser on the same text is the baseline.
+ */
+@State(Scope.Benchmark)
+public class ParallelParserBenchmark {
+
+    @Param({"1000", "10000"})
+    public int items;
+
+    // Threads the response is split over, the calling thread included
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private char[] mText;
+    private ExecutorService mExecutor;
+    private ParallelBookParser mParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        mText = new String(Fixtures.response(items), Fixtures.UTF_8).toCharArray();
+        mExecutor = Executors.newFixedThreadPool(Math.max(1, threads - 1));
+        mParser = new ParallelBookParser(mExecutor, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Book> parallelParser() throws IOException {
+        return mParser.parse(mText, mText.length);
+    }
+
+    /**
+     * The stream parser on the same text, on the calling thread.
+     */
+    @Benchmark
+    public List<Book> sequentialParser() throws IOException {
+        final List<Book> books = new ArrayList<>();
+        BookStreamParser.parse(new CharArrayReader(mText), new BookStreamParser.BookListener() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        });
+        return books;
+    }
+}
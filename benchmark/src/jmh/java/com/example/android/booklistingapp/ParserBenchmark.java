@@ -0,0 +1,56 @@
+package com.example.android.booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Parses a whole Google Books response into {@link Book}s, with the streaming parser the
+ * app uses and with the org.json tree parser it replaced.
+ */
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"10", "40", "1000"})
+    public int items;
+
+    private byte[] mResponse;
+    private String mResponseText;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.response(items);
+        mResponseText = new String(mResponse, Fixtures.UTF_8);
+    }
+
+    /**
+     * The path of the app: tokens are read straight from the response bytes.
+     */
+    @Benchmark
+    public List<Book> streamParser() throws IOException {
+        return BookStreamParser.parse(new ByteArrayInputStream(mResponse));
+    }
+
+    /**
+     * The tree parser alone, on a response that was already read into a String.
+     */
+    @Benchmark
+    public List<Book> jsonTreeParser() {
+        return BookJsonParser.parse(mResponseText);
+    }
+
+    /**
+     * The path the app had before the streaming parser: read the whole response into
+     * a String, then build the tree.
+     */
+    @Benchmark
+    public List<Book> readThenJsonTreeParser() throws IOException {
+        return BookJsonParser.parse(BookJsonParser.readFromStream(new ByteArrayInputStream(mResponse)));
+    }
+}
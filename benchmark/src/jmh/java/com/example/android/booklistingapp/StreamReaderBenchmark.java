@@ -0,0 +1,64 @@
+package com.example.android.booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Reads a whole Google Books response into memory, the first step of the tree parser.
+ * <p>
+ * readLines is the line by line reader the app had before {@link ResponseBuffer}, kept here
+ * as the baseline.
+ */
+@State(Scope.Benchmark)
+public class StreamReaderBenchmark {
+
+    @Param({"10", "40", "1000"})
+    public int items;
+
+    private byte[] mResponse;
+
+    private final ResponseBuffer mBuffer = new ResponseBuffer();
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.response(items);
+    }
+
+    /**
+     * Read into a String, presized from the length like a response with a Content-Length.
+     */
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return BookJsonParser.readFromStream(new ByteArrayInputStream(mResponse), mResponse.length);
+    }
+
+    /**
+     * Read into a reused buffer, and hand out a view of the text instead of a String.
+     */
+    @Benchmark
+    public CharSequence readIntoBuffer() throws IOException {
+        mBuffer.read(new ByteArrayInputStream(mResponse), mResponse.length);
+        return mBuffer.chars();
+    }
+
+    @Benchmark
+    public String readLines() throws IOException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(mResponse), Fixtures.UTF_8));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+}